@@ -0,0 +1,81 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The commission of the antiquarians, added to the price asked by the seller when the antiquity is accepted.
+ *
+ * <p>All the calculations of the commission are done here, in cents: the price of an accepted antiquity is always
+ * split exactly between the seller and the antiquarian.</p>
+ * @author Zarzycki Alexis
+ */
+public final class Commission {
+
+    /**
+     * The rate of the commission, in percent of the price asked by the seller
+     */
+    public static final int RATE_PERCENT = 20;
+
+    private Commission() {
+    }
+
+    /**
+     * The price with the commission
+     * @param price the price asked by the seller
+     * @return the price asked plus the commission
+     * @author Zarzycki Alexis
+     */
+    public static Money apply(Money price) {
+        return price.plus(price.percent(RATE_PERCENT));
+    }
+
+    /**
+     * The price asked by the seller, from the price with the commission
+     * @param priceWithCommission the price with the commission
+     * @return the part of the seller
+     * @author Zarzycki Alexis
+     */
+    public static Money baseOf(Money priceWithCommission) {
+        return priceWithCommission.multiply(100, 100 + RATE_PERCENT);
+    }
+
+    /**
+     * The commission included in a price
+     * @param priceWithCommission the price with the commission
+     * @return the part of the antiquarian
+     * @author Zarzycki Alexis
+     */
+    public static Money of(Money priceWithCommission) {
+        return priceWithCommission.minus(baseOf(priceWithCommission));
+    }
+
+    /**
+     * Split the price of a sold antiquity between the seller and the antiquarian
+     * @param priceWithCommission the price paid
+     * @return the part of each one, their sum is the price paid
+     * @author Zarzycki Alexis
+     */
+    public static Payout payout(Money priceWithCommission) {
+        Money seller = baseOf(priceWithCommission);
+        return new Payout(seller, priceWithCommission.minus(seller));
+    }
+
+    /**
+     * The parts of the price of a sold antiquity
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Payout {
+
+        /**
+         * The part of the seller
+         */
+        private final Money seller;
+
+        /**
+         * The part of the antiquarian
+         */
+        private final Money antiquarian;
+    }
+}
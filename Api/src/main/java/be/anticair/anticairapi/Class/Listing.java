@@ -3,32 +3,43 @@ package be.anticair.anticairapi.Class;
 
 import be.anticair.anticairapi.enumeration.AntiquityState;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonSetter;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+
+import java.math.BigDecimal;
 /**
  * Listing Class
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "listing")
 @NoArgsConstructor
-@AllArgsConstructor
 @Getter
 @Setter
 @Table(name = "antiquity")
 public class Listing {
 
         @Id
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "antiquity_seq")
+        @SequenceGenerator(name = "antiquity_seq", sequenceName = "antiquity_seq", allocationSize = 50)
         @Column(name = "id_antiquity")
         private Integer idAntiquity;
 
-        @Column(name = "price_antiquity")
-        private Double priceAntiquity;
+        /**
+         * Price of the listing, in cents (see MoneyConverter), read and written as a decimal value by the JSON
+         */
+        @Convert(converter = MoneyConverter.class)
+        @Column(name = "price_antiquity", precision = 12, scale = 2)
+        private Money priceAntiquity;
 
         @Column(name = "description_antiquity")
         private String descriptionAntiquity;
@@ -48,13 +59,92 @@ public class Listing {
         @Column(name = "mail_seller")
         private String mailSeller;
 
+        /**
+         * Version of the listing, incremented by each modification, to detect the concurrent modifications
+         * (primitive, so a listing is still new only if it has no id)
+         */
+        @Version
+        @Column(name = "version", nullable = false)
+        private long version;
 
+        /**
+         * Constructor
+         * @param idAntiquity the id of the listing
+         * @param priceAntiquity the price of the listing
+         * @param descriptionAntiquity the description of the listing
+         * @param titleAntiquity the title of the listing
+         * @param mailAntiquarian the email of the antiquarian checking the listing
+         * @param state the state of the listing
+         * @param isDisplay if the listing is displayed
+         * @param mailSeller the email of the seller
+         */
+        public Listing(Integer idAntiquity, Double priceAntiquity, String descriptionAntiquity, String titleAntiquity,
+                       String mailAntiquarian, Integer state, Boolean isDisplay, String mailSeller) {
+                this.idAntiquity = idAntiquity;
+                this.setPriceAntiquity(priceAntiquity);
+                this.descriptionAntiquity = descriptionAntiquity;
+                this.titleAntiquity = titleAntiquity;
+                this.mailAntiquarian = mailAntiquarian;
+                this.state = state;
+                this.isDisplay = isDisplay;
+                this.mailSeller = mailSeller;
+        }
+
+
+        /**
+         * Get the exact price of the listing
+         * @return the price, null if it isn't given
+         * @author Zarzycki Alexis
+         */
+        @JsonIgnore
+        public Money getPrice() {
+                return priceAntiquity;
+        }
+
+        /**
+         * Set the exact price of the listing
+         * @param price the price
+         * @author Zarzycki Alexis
+         */
+        @JsonIgnore
+        public void setPrice(Money price) {
+                this.priceAntiquity = price;
+        }
+
+        /**
+         * Get the price of the listing as a decimal value
+         * @return the price, null if it isn't given
+         */
+        public Double getPriceAntiquity() {
+                return priceAntiquity == null ? null : priceAntiquity.toDouble();
+        }
+
+        /**
+         * Set the price of the listing, rounded to the cent
+         * @param priceAntiquity the price
+         */
+        @JsonIgnore
+        public void setPriceAntiquity(Double priceAntiquity) {
+                this.priceAntiquity = priceAntiquity == null ? null : Money.of(priceAntiquity);
+        }
+
+        /**
+         * Set the price of the listing sent in JSON, rounded to the cent, read as a decimal value without going
+         * through a double
+         * @param priceAntiquity the price
+         * @author Zarzycki Alexis
+         */
+        @JsonSetter("priceAntiquity")
+        public void setPriceAntiquity(BigDecimal priceAntiquity) {
+                this.priceAntiquity = priceAntiquity == null ? null : Money.of(priceAntiquity);
+        }
 
         /**
          * Function to apply the commission
          * @Author Verly Noah
+         * @see Commission#apply(Money)
          */
         public void applyCommission(){
-                this.priceAntiquity += this.priceAntiquity * 0.20;
+                this.priceAntiquity = Commission.apply(this.priceAntiquity);
         }
 }
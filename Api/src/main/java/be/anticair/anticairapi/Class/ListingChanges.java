@@ -0,0 +1,39 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * The changes of the catalog of the accepted listings since a position of the change feed
+ * @author Zarzycki Alexis
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingChanges {
+
+    /**
+     * The listings added to or updated in the catalog, with their photos
+     */
+    private List<ListingWithPhotosDto> upserts;
+
+    /**
+     * The ids of the listings changed that are not in the catalog anymore (or have never been)
+     */
+    private List<Integer> tombstones;
+
+    /**
+     * The position to give to get the next changes
+     */
+    private long nextSince;
+
+    /**
+     * If there are more changes after nextSince
+     */
+    private boolean hasMore;
+}
@@ -0,0 +1,90 @@
+package be.anticair.anticairapi.Class;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor used to paginate the listings: a keyset position (the id of the last listing read) for the catalog,
+ * an offset for the search. The kind is part of the cursor, so a cursor given by one endpoint is refused by the other.
+ * @author Zarzycki Alexis
+ */
+public final class ListingCursor {
+
+    /**
+     * Prefix to recognize a keyset cursor generated by the API
+     */
+    private static final String PREFIX = "l:";
+
+    /**
+     * Prefix to recognize an offset cursor generated by the API
+     */
+    private static final String OFFSET_PREFIX = "o:";
+
+    private ListingCursor() {
+    }
+
+    /**
+     * Encode a position in an opaque cursor
+     * @param position the last position read (for example the id of the last antiquity)
+     * @return the opaque cursor
+     * @author Zarzycki Alexis
+     */
+    public static String encode(long position) {
+        return encode(PREFIX, position);
+    }
+
+    /**
+     * Encode an offset in an opaque cursor
+     * @param offset the number of results already read
+     * @return the opaque cursor
+     * @author Zarzycki Alexis
+     */
+    public static String encodeOffset(long offset) {
+        return encode(OFFSET_PREFIX, offset);
+    }
+
+    private static String encode(String prefix, long value) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((prefix + value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode an opaque cursor
+     * @param cursor the cursor received from the client, can be null or empty for the first page
+     * @return the position stored in the cursor, 0 if there isn't cursor
+     * @throws IllegalArgumentException if the cursor is not valid, or is an offset cursor
+     * @author Zarzycki Alexis
+     */
+    public static long decode(String cursor) {
+        return decode(PREFIX, cursor);
+    }
+
+    /**
+     * Decode an opaque cursor given by {@link #encodeOffset(long)}
+     * @param cursor the cursor received from the client, can be null or empty for the first page
+     * @return the offset stored in the cursor, 0 if there isn't cursor
+     * @throws IllegalArgumentException if the cursor is not valid, or is a keyset cursor
+     * @author Zarzycki Alexis
+     */
+    public static long decodeOffset(String cursor) {
+        return decode(OFFSET_PREFIX, cursor);
+    }
+
+    private static long decode(String prefix, String cursor) {
+        if (cursor == null || cursor.isEmpty()) return 0;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(prefix)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            long position = Long.parseLong(decoded.substring(prefix.length()));
+            if (position < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return position;
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * The criteria of the filter of the listings, all of them are optional
+ * @author Zarzycki Alexis
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingFilter {
+
+    /**
+     * The minimum price (included)
+     */
+    private BigDecimal minPrice;
+
+    /**
+     * The maximum price (included)
+     */
+    private BigDecimal maxPrice;
+
+    /**
+     * The state of the listings (accepted or sold), the accepted listings by default
+     */
+    private Integer state;
+
+    /**
+     * The email of the seller
+     */
+    private String mailSeller;
+
+    /**
+     * A text to find in the title or the description
+     */
+    private String text;
+
+    /**
+     * The order of the listings : price_asc, price_desc, newest or oldest (by default)
+     */
+    private String sort;
+
+    /**
+     * The number of the page, from 0
+     */
+    private Integer page;
+
+    /**
+     * The number of listings by page
+     */
+    private Integer size;
+}
@@ -0,0 +1,50 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of the filtered listings with the facets of the filter
+ * @author Zarzycki Alexis
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingFilterResult {
+
+    /**
+     * The listings of the page
+     */
+    private List<ListingWithPhotosDto> items;
+
+    /**
+     * The number of the page, from 0
+     */
+    private int page;
+
+    /**
+     * The number of listings by page
+     */
+    private int size;
+
+    /**
+     * The number of listings matching the filter
+     */
+    private long totalElements;
+
+    /**
+     * The number of listings in each range of price (for example "50-100"), with all the criteria except the price
+     */
+    private Map<String, Long> priceBuckets;
+
+    /**
+     * The number of listings in each state, with all the criteria except the state
+     */
+    private Map<Integer, Long> stateCounts;
+}
@@ -0,0 +1,29 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A page of listings with the cursor to get the next one
+ * @param <T> the type of the items in the page
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingPage<T> {
+
+    /**
+     * The items of the page
+     */
+    private List<T> items;
+
+    /**
+     * The opaque cursor to give to get the next page, null if it is the last page
+     */
+    private String nextCursor;
+}
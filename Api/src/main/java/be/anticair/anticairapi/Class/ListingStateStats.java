@@ -0,0 +1,35 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * The number of listings and the price aggregates of a group of listings (a state, or the whole catalog)
+ * @author Zarzycki Alexis
+ */
+@Getter
+@AllArgsConstructor
+public class ListingStateStats {
+
+    /**
+     * The number of listings
+     */
+    private final long count;
+
+    /**
+     * The lowest price, null if no listing has a price
+     */
+    private final BigDecimal priceMin;
+
+    /**
+     * The highest price, null if no listing has a price
+     */
+    private final BigDecimal priceMax;
+
+    /**
+     * The average price, rounded to the cent, null if no listing has a price
+     */
+    private final BigDecimal priceAvg;
+}
@@ -0,0 +1,30 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * The statistics of the catalog, for the dashboards of the administrators
+ * @author Zarzycki Alexis
+ */
+@Getter
+@AllArgsConstructor
+public class ListingStats {
+
+    /**
+     * The statistics of all the listings
+     */
+    private final ListingStateStats total;
+
+    /**
+     * The statistics of each state, with the name of the state as key
+     */
+    private final Map<String, ListingStateStats> states;
+
+    /**
+     * The number of listings waiting for a review (state 0 or 2), with the email of the antiquarian as key
+     */
+    private final Map<String, Long> antiquarianBacklogs;
+}
@@ -0,0 +1,71 @@
+package be.anticair.anticairapi.Class;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+/**
+ * Read-only view of a listing, built directly by the queries of the list endpoints
+ * (no entity is loaded in the persistence context)
+ * @author Zarzycki Alexis
+ */
+@Getter
+public class ListingSummary {
+
+    private final Integer idAntiquity;
+    @JsonIgnore
+    private final Money price;
+    private final String descriptionAntiquity;
+    private final String titleAntiquity;
+    private final String mailAntiquarian;
+    private final Integer state;
+    private final Boolean isDisplay;
+    private final String mailSeller;
+    private final long version;
+
+    /**
+     * Constructor used by the queries ({@code SELECT new ...}), the order of the parameters must be kept
+     * @param idAntiquity the id of the antiquity
+     * @param price the price
+     * @param descriptionAntiquity the description
+     * @param titleAntiquity the title
+     * @param mailAntiquarian the email of the antiquarian
+     * @param state the state of the antiquity
+     * @param isDisplay true if the antiquity is displayed
+     * @param mailSeller the email of the seller
+     * @param version the version of the antiquity
+     * @author Zarzycki Alexis
+     */
+    public ListingSummary(Integer idAntiquity, Money price, String descriptionAntiquity, String titleAntiquity,
+                          String mailAntiquarian, Integer state, Boolean isDisplay, String mailSeller, long version) {
+        this.idAntiquity = idAntiquity;
+        this.price = price;
+        this.descriptionAntiquity = descriptionAntiquity;
+        this.titleAntiquity = titleAntiquity;
+        this.mailAntiquarian = mailAntiquarian;
+        this.state = state;
+        this.isDisplay = isDisplay;
+        this.mailSeller = mailSeller;
+        this.version = version;
+    }
+
+    /**
+     * Get the price as a decimal value
+     * @return the price, null if it isn't given
+     * @author Zarzycki Alexis
+     */
+    public Double getPriceAntiquity() {
+        return price == null ? null : price.toDouble();
+    }
+
+    /**
+     * Build the view of a listing already loaded
+     * @param listing the listing
+     * @return the view of the listing
+     * @author Zarzycki Alexis
+     */
+    public static ListingSummary of(Listing listing) {
+        return new ListingSummary(listing.getIdAntiquity(), listing.getPrice(), listing.getDescriptionAntiquity(),
+                listing.getTitleAntiquity(), listing.getMailAntiquarian(), listing.getState(), listing.getIsDisplay(),
+                listing.getMailSeller(), listing.getVersion());
+    }
+}
@@ -4,6 +4,7 @@ import lombok.*;
 
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Listing Class with Photos
@@ -23,6 +24,11 @@ public class ListingWithPhotosDto {
     private Boolean isDisplay;
     private String mailAntiquarian;
     private List<String> photos;
+    /**
+     * The smaller versions of each photo, in the order of the photos: the path of each version, with its width as key
+     */
+    private List<Map<Integer, String>> thumbnails;
+    private long version;
 
     public ListingWithPhotosDto(Listing listing, List<PhotoAntiquity> photos) {
         this.idAntiquity = listing.getIdAntiquity();
@@ -33,9 +39,31 @@ public class ListingWithPhotosDto {
         this.state = listing.getState();
         this.isDisplay = listing.getIsDisplay();
         this.mailAntiquarian = listing.getMailAntiquarian();
+        this.version = listing.getVersion();
         this.photos = photos.stream()
                 .map(PhotoAntiquity::getPathPhoto)
                 .toList();
+        this.thumbnails = photos.stream()
+                .map(PhotoAntiquity::getVariants)
+                .toList();
+    }
+
+    public ListingWithPhotosDto(ListingSummary listing, List<PhotoAntiquity> photos) {
+        this.idAntiquity = listing.getIdAntiquity();
+        this.priceAntiquity = listing.getPriceAntiquity();
+        this.descriptionAntiquity = listing.getDescriptionAntiquity();
+        this.titleAntiquity = listing.getTitleAntiquity();
+        this.mailSeller = listing.getMailSeller();
+        this.state = listing.getState();
+        this.isDisplay = listing.getIsDisplay();
+        this.mailAntiquarian = listing.getMailAntiquarian();
+        this.version = listing.getVersion();
+        this.photos = photos.stream()
+                .map(PhotoAntiquity::getPathPhoto)
+                .toList();
+        this.thumbnails = photos.stream()
+                .map(PhotoAntiquity::getVariants)
+                .toList();
     }
 
 }
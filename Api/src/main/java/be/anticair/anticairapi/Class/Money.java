@@ -0,0 +1,201 @@
+package be.anticair.anticairapi.Class;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money, kept as an exact number of cents.
+ *
+ * <p>The amounts are immutable. The conversions from a decimal value round to the nearest cent (half up), the
+ * calculations are done on the cents, and the amounts are written with two decimals and a dot
+ * (for example {@code 1234.50}) without any formatter.</p>
+ * @author Zarzycki Alexis
+ * @see Commission
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    /**
+     * An amount of zero
+     */
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * The number of cents
+     */
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * Create an amount from a number of cents
+     * @param cents the number of cents
+     * @return the amount
+     * @author Zarzycki Alexis
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Create an amount from a decimal value, rounded to the nearest cent.
+     * The value is read from its shortest representation, so for example 1.005 gives 1.01
+     * @param amount the amount
+     * @return the amount
+     * @throws IllegalArgumentException if the value is not a finite number
+     * @author Zarzycki Alexis
+     */
+    public static Money of(double amount) {
+        if (!Double.isFinite(amount)) throw new IllegalArgumentException("Invalid amount: " + amount);
+        return of(BigDecimal.valueOf(amount));
+    }
+
+    /**
+     * Create an amount from a decimal value, rounded to the nearest cent
+     * @param amount the amount
+     * @return the amount
+     * @author Zarzycki Alexis
+     */
+    public static Money of(BigDecimal amount) {
+        return ofCents(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Read an amount written as a decimal value (for example "120.0" or "120.00")
+     * @param amount the amount
+     * @return the amount
+     * @throws NumberFormatException if the text isn't a decimal value
+     * @author Zarzycki Alexis
+     */
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount.trim()));
+    }
+
+    /**
+     * @return the number of cents
+     */
+    public long getCents() {
+        return cents;
+    }
+
+    /**
+     * @return the nearest double of the amount
+     */
+    public double toDouble() {
+        return cents / 100.0;
+    }
+
+    /**
+     * @return the amount with two decimals
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * @param other the amount to add
+     * @return the sum of the amounts
+     */
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    /**
+     * @param other the amount to subtract
+     * @return the difference of the amounts
+     */
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    /**
+     * @param quantity the quantity
+     * @return the amount multiplied by the quantity
+     */
+    public Money times(long quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    /**
+     * A percentage of the amount, rounded to the nearest cent (half up)
+     * @param percent the percentage, for example 20 for 20%
+     * @return the percentage of the amount
+     * @author Zarzycki Alexis
+     */
+    public Money percent(long percent) {
+        return ofCents(divideHalfUp(Math.multiplyExact(cents, percent), 100));
+    }
+
+    /**
+     * The amount multiplied by a fraction, rounded to the nearest cent (half up)
+     * @param numerator the numerator of the fraction
+     * @param denominator the denominator of the fraction, positive
+     * @return the amount multiplied by the fraction
+     * @author Zarzycki Alexis
+     */
+    public Money multiply(long numerator, long denominator) {
+        return ofCents(divideHalfUp(Math.multiplyExact(cents, numerator), denominator));
+    }
+
+    /**
+     * @return true if the amount is less than zero
+     */
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    /**
+     * Division rounded half away from zero, like {@link RoundingMode#HALF_UP}
+     */
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = Math.addExact(Math.multiplyExact(Math.absExact(dividend), 2), divisor) / Math.multiplyExact(divisor, 2);
+        return dividend < 0 ? -quotient : quotient;
+    }
+
+    /**
+     * Write the amount with two decimals and a dot in a builder
+     * @param builder the builder
+     * @return the builder
+     * @author Zarzycki Alexis
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        long absolute = Math.abs(cents);
+        long fraction = absolute % 100;
+        if (cents < 0) builder.append('-');
+        builder.append(absolute / 100).append('.');
+        if (fraction < 10) builder.append('0');
+        return builder.append(fraction);
+    }
+
+    /**
+     * Write an amount which may be missing, for example in a mail
+     * @param amount the amount, can be null
+     * @return the amount with two decimals, an empty text if there isn't amount
+     * @author Zarzycki Alexis
+     */
+    public static String toString(Money amount) {
+        return amount == null ? "" : amount.toString();
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(24)).toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof Money money && money.cents == cents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+}
@@ -0,0 +1,28 @@
+package be.anticair.anticairapi.Class;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.hibernate.annotations.Mutability;
+import org.hibernate.type.descriptor.java.Immutability;
+
+import java.math.BigDecimal;
+
+/**
+ * Store a {@link Money} in a column numeric(12,2)
+ * (immutable, so Hibernate doesn't copy the amounts to detect the modifications)
+ * @author Zarzycki Alexis
+ */
+@Converter
+@Mutability(Immutability.class)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+}
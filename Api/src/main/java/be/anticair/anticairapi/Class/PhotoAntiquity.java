@@ -2,11 +2,19 @@ package be.anticair.anticairapi.Class;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Class Antiquity Photo
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "photo-antiquity")
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -15,13 +23,64 @@ import lombok.*;
 public class PhotoAntiquity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "photo_antiquity_seq")
+    @SequenceGenerator(name = "photo_antiquity_seq", sequenceName = "photo_antiquity_seq", allocationSize = 50)
     @Column(name = "id_photo", updatable = false)
     private Integer idPhoto;
 
-    @Column(name = "path_photo", unique = true, nullable = false)
+    /**
+     * The path of the file, named after its content: several photos can share the same file
+     */
+    @Column(name = "path_photo", nullable = false)
     private String pathPhoto;
 
     @Column(name = "id_antiquity", nullable = false)
     private Integer idAntiquity;
+
+    /**
+     * The widths of the smaller versions of the photo, separated by commas (for example "1200,600,200"),
+     * null if there isn't any (photo already small, or saved before the variants)
+     */
+    @Column(name = "variant_widths")
+    private String variantWidths;
+
+    /**
+     * Get the paths of the smaller versions of the photo
+     * @return the path of each variant, with its width as key, empty if there isn't any
+     * @author Zarzycki Alexis
+     */
+    public Map<Integer, String> getVariants() {
+        Map<Integer, String> variants = new TreeMap<>();
+        if (variantWidths == null || variantWidths.isEmpty()) return variants;
+        for (String width : variantWidths.split(",")) {
+            int value = Integer.parseInt(width.trim());
+            variants.put(value, variantPath(pathPhoto, value));
+        }
+        return variants;
+    }
+
+    /**
+     * The path of the version of a photo with a width, next to the photo
+     * (for example /uploads/name_w200.jpg for /uploads/name.jpeg)
+     * @param path the path of the photo
+     * @param width the width of the version
+     * @return the path of the version
+     * @author Zarzycki Alexis
+     */
+    public static String variantPath(String path, int width) {
+        int dot = path.lastIndexOf('.');
+        String base = dot > path.lastIndexOf('/') ? path.substring(0, dot) : path;
+        return base + "_w" + width + "." + variantFormat(path);
+    }
+
+    /**
+     * The format of the versions of a photo: PNG for the formats which can be transparent, JPEG otherwise
+     * @param path the path of the photo
+     * @return the name of the format, also used as extension
+     * @author Zarzycki Alexis
+     */
+    public static String variantFormat(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".png") || lower.endsWith(".gif") ? "png" : "jpg";
+    }
 }
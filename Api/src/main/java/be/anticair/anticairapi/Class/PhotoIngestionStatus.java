@@ -0,0 +1,51 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The progress of the photos of a listing sent to the ingestion, after the response of the upload
+ * @author Zarzycki Alexis
+ */
+@Getter
+@AllArgsConstructor
+public class PhotoIngestionStatus {
+
+    /**
+     * The steps of the ingestion
+     */
+    public enum State {
+        /**
+         * The files are written, their smaller versions are being made and the photos saved in the database
+         */
+        PENDING,
+        /**
+         * The photos are saved and visible with the listing
+         */
+        DONE,
+        /**
+         * The photos couldn't be saved, the files written have been deleted
+         */
+        FAILED
+    }
+
+    /**
+     * The id of the antiquity
+     */
+    private final Integer idAntiquity;
+
+    /**
+     * The step of the ingestion
+     */
+    private final State state;
+
+    /**
+     * The number of photos sent
+     */
+    private final int total;
+
+    /**
+     * The reason of the failure, null otherwise
+     */
+    private final String message;
+}
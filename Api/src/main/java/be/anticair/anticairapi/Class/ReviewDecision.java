@@ -0,0 +1,53 @@
+package be.anticair.anticairapi.Class;
+
+import be.anticair.anticairapi.enumeration.AntiquityAction;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A decision of an antiquarian on an antiquity of his review queue, given to the bulk review
+ * @author Zarzycki Alexis
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewDecision {
+
+    /**
+     * The id of the antiquity
+     */
+    private Integer id;
+
+    /**
+     * The decision, ACCEPT or REJECT
+     */
+    private AntiquityAction action;
+
+    /**
+     * The review of the title, needed to reject
+     */
+    @JsonProperty("note_title")
+    private String noteTitle;
+
+    /**
+     * The review of the description, needed to reject
+     */
+    @JsonProperty("note_description")
+    private String noteDescription;
+
+    /**
+     * The review of the price, needed to reject
+     */
+    @JsonProperty("note_price")
+    private String notePrice;
+
+    /**
+     * The review of the photos, needed to reject
+     */
+    @JsonProperty("note_photo")
+    private String notePhoto;
+}
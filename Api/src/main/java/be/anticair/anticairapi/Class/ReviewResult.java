@@ -0,0 +1,55 @@
+package be.anticair.anticairapi.Class;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The result of one decision of the bulk review
+ * @author Zarzycki Alexis
+ */
+@Getter
+@AllArgsConstructor
+public class ReviewResult {
+
+    /**
+     * The id of the antiquity
+     */
+    private final Integer id;
+
+    /**
+     * True if the decision has been applied
+     */
+    private final boolean success;
+
+    /**
+     * The state of the antiquity after the decision, null if it hasn't been applied
+     */
+    private final Integer state;
+
+    /**
+     * The message to know the result
+     */
+    private final String message;
+
+    /**
+     * Create the result of a decision applied
+     * @param id the id of the antiquity
+     * @param state the new state of the antiquity
+     * @return the result
+     * @author Zarzycki Alexis
+     */
+    public static ReviewResult applied(Integer id, Integer state) {
+        return new ReviewResult(id, true, state, "Decision applied");
+    }
+
+    /**
+     * Create the result of a decision not applied
+     * @param id the id of the antiquity
+     * @param message the reason
+     * @return the result
+     * @author Zarzycki Alexis
+     */
+    public static ReviewResult failed(Integer id, String message) {
+        return new ReviewResult(id, false, null, message);
+    }
+}
@@ -0,0 +1,100 @@
+package be.anticair.anticairapi;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Configuration of the read replica, enabled with datasource.replica.enabled=true.
+ *
+ * <p>The read-only transactions ({@code @Transactional(readOnly = true)} in the services and the repositories)
+ * use the replica, the others use the primary (spring.datasource). The reads go back to the primary
+ * while the replica is too late or unreachable. The reads which must see the last commits run in a read-write
+ * transaction.</p>
+ *
+ * @author Zarzycki Alexis
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    /**
+     * The pool of the primary database
+     * @param properties the properties spring.datasource
+     * @return the pool of the primary
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * The pool of the read replica
+     * @param url the url of the replica
+     * @param username the user of the replica
+     * @param password the password of the replica
+     * @param maximumPoolSize the maximum number of connections to the replica
+     * @return the pool of the replica
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource replicaDataSource(@Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username}") String username,
+                                              @Value("${datasource.replica.password}") String password,
+                                              @Value("${datasource.replica.maximum-pool-size:10}") int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * The monitor of the lag of the replica
+     * @param replica the pool of the replica
+     * @param maxLag the maximum lag to use the replica
+     * @param checkInterval the interval between two measures of the lag
+     * @return the monitor
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${datasource.replica.max-lag:5s}") Duration maxLag,
+                                               @Value("${datasource.replica.check-interval:2s}") Duration checkInterval) {
+        return new ReplicaLagMonitor(replica, maxLag, checkInterval);
+    }
+
+    /**
+     * The DataSource used by the application, routing each transaction to the primary or the replica
+     * @param primary the pool of the primary
+     * @param replica the pool of the replica
+     * @param lagMonitor the monitor of the lag of the replica
+     * @return the DataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor lagMonitor) {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(lagMonitor);
+        routing.setTargetDataSources(Map.of(
+                ReadReplicaRoutingDataSource.Route.PRIMARY, primary,
+                ReadReplicaRoutingDataSource.Route.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
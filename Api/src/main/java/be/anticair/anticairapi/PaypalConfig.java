@@ -1,7 +1,9 @@
 package be.anticair.anticairapi;
 
+import be.anticair.anticairapi.Class.Commission;
 import be.anticair.anticairapi.Class.Listing;
 import be.anticair.anticairapi.Class.ListingWithPhotosDto;
+import be.anticair.anticairapi.Class.Money;
 import be.anticair.anticairapi.enumeration.TypeOfMail;
 import be.anticair.anticairapi.keycloak.service.EmailService;
 import be.anticair.anticairapi.keycloak.service.ListingRepository;
@@ -20,8 +22,6 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.*;
 
 import org.keycloak.admin.client.Keycloak;
@@ -32,6 +32,11 @@ import org.keycloak.admin.client.Keycloak;
 @Service
 public class PaypalConfig {
 
+    /**
+     * The highest amount accepted for an invoice
+     */
+    private static final Money MAX_INVOICE_AMOUNT = Money.ofCents(99999999);
+
     private final Keycloak keycloak;
     private final UserService userService;
     private final ListingService listingService;
@@ -113,8 +118,8 @@ public class PaypalConfig {
         Amount amount = new Amount();
         amount.setCurrency(currency);
 
-        // Force format to US standards to prevent PayPal issues
-        amount.setTotal(String.format(java.util.Locale.US, "%.2f", total));
+        // Two decimal places and a dot, like PayPal expects
+        amount.setTotal(Money.of(total).toString());
 
         // Configure transaction details
         Transaction transaction = new Transaction();
@@ -139,6 +144,18 @@ public class PaypalConfig {
         return payment.create(getApiContext());
     }
 
+    /**
+     * Retrieves a PayPal payment by its ID, without executing it.
+     *
+     * @param paymentId The ID of the previously created payment
+     * @return The Payment object with its details, among which the transactions
+     * @throws PayPalRESTException In case of communication error
+     * @Author Zarzycki Alexis
+     */
+    public Payment getPayment(String paymentId) throws PayPalRESTException {
+        return Payment.get(getApiContext(), paymentId);
+    }
+
     /**
      * Executes a previously approved PayPal payment using payment ID and payer ID.
      * This completes the payment process.
@@ -218,12 +235,14 @@ public class PaypalConfig {
             throw new IllegalArgumentException("Invalid quantity: The value must be greater than 0.");
         }
 
-        // Format unit price and total amount to 2 decimals using Locale.US
-        String formattedUnitPrice = String.format(Locale.US, "%.2f", itemPrice);
-        String formattedTotalAmount = String.format(Locale.US, "%.2f", itemPrice * quantity);
+        // Unit price and total amount with 2 decimals and a dot, calculated in cents
+        Money unitPrice = Money.of(itemPrice);
+        Money totalAmount = unitPrice.times(quantity);
+        String formattedUnitPrice = unitPrice.toString();
+        String formattedTotalAmount = totalAmount.toString();
 
         // Ensure total amount is valid
-        if (Double.parseDouble(formattedTotalAmount) > 999999.99) {
+        if (totalAmount.compareTo(MAX_INVOICE_AMOUNT) > 0) {
             throw new IllegalArgumentException("Invalid total amount: Total must not exceed 999999.99.");
         }
 
@@ -272,29 +291,21 @@ public class PaypalConfig {
 
         ListingWithPhotosDto listing = listingService.getListingById(listingId.intValue());
 
-        // When the antiquity has been sold, we pay the antiquarian for the commission
-        // We get the base price
-        double basePrice = listing.getPriceAntiquity() / 1.2;
-        double commissionToPay = listing.getPriceAntiquity() - basePrice;
-        // When the antiquity has been sold, we pay the seller for the payment
-        double sellerToPay = basePrice;
-
-        // Format the commission to two decimal places before adding to the balance
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
-        DecimalFormat df = new DecimalFormat("#.00", symbols);
-        String formattedCommission = df.format(commissionToPay);
-        String formattedSeller = df.format(sellerToPay);
+        // When the antiquity has been sold, the price is split between the antiquarian (the commission)
+        // and the seller (the base price), to the cent
+        Money price = Money.of(listing.getPriceAntiquity());
+        Commission.Payout payout = Commission.payout(price);
 
         // Add the commission to the antiquarian's balance
-        userService.addToUserBalance(listing.getMailAntiquarian(), Double.parseDouble(formattedCommission));
+        userService.addToUserBalance(listing.getMailAntiquarian(), payout.getAntiquarian());
         // Add the commission to the seller's balance
-        userService.addToUserBalance(listing.getMailSeller(), Double.parseDouble(formattedSeller));
+        userService.addToUserBalance(listing.getMailSeller(), payout.getSeller());
 
         // We send the email to inform the antiquarian
         Map<String,String> otherInformation = new HashMap<>();
         otherInformation.put("title", listing.getTitleAntiquity());
         otherInformation.put("description", listing.getDescriptionAntiquity());
-        otherInformation.put("price", listing.getPriceAntiquity().toString());
+        otherInformation.put("price", price.toString());
         emailService.sendHtmlEmail(listing.getMailAntiquarian(), "info@anticairapp.sixela.be", TypeOfMail.PAYMENTOFCOMMISSION, otherInformation);
 
         return createdInvoice;
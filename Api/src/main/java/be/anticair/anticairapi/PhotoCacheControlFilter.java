@@ -0,0 +1,60 @@
+package be.anticair.anticairapi;
+
+import be.anticair.anticairapi.keycloak.service.PhotoStorage;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Give a long cache duration to the photos named by their content: their URL changes with their content,
+ * so the clients can keep them without asking the server again ({@code immutable}).
+ *
+ * <p>The photos saved before, with a random name, keep the default headers. An error (missing file, bad range)
+ * is never kept by the clients.</p>
+ * @author Zarzycki Alexis
+ * @see PhotoStorage#isSharded(String)
+ */
+public class PhotoCacheControlFilter extends OncePerRequestFilter {
+
+    private final String cacheControl;
+
+    /**
+     * Constructor
+     * @param maxAge the time the clients keep the photos
+     * @author Zarzycki Alexis
+     */
+    public PhotoCacheControlFilter(Duration maxAge) {
+        this.cacheControl = "public, max-age=" + maxAge.toSeconds() + ", immutable";
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!PhotoStorage.isSharded(path)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        filterChain.doFilter(request, new HttpServletResponseWrapper(response) {
+            @Override
+            public void sendError(int sc) throws IOException {
+                super.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                super.sendError(sc);
+            }
+
+            @Override
+            public void sendError(int sc, String msg) throws IOException {
+                super.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                super.sendError(sc, msg);
+            }
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package be.anticair.anticairapi;
+
+import be.anticair.anticairapi.keycloak.service.PhotoStorage;
+import org.apache.catalina.Lifecycle;
+import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+
+/**
+ * Serving of the photos ({@code /uploads/**}) by the default servlet of Tomcat instead of Spring MVC.
+ *
+ * <p>The directory of the photos is mounted in the resources of the context, so the servlet answers without
+ * going through the DispatcherServlet: the requests with a Range header get only the asked bytes, the conditional
+ * requests (ETag, Last-Modified) get a 304, and the files larger than {@code photo.serving.sendfile-size} are sent
+ * by the operating system (sendfile) without being copied in the heap. The files named by their content are cached
+ * by the clients for {@code photo.serving.max-age} (see {@link PhotoCacheControlFilter}).</p>
+ * @author Zarzycki Alexis
+ */
+@Configuration
+public class PhotoServingConfig {
+
+    /**
+     * Mount the directory of the photos at /uploads in the resources of Tomcat
+     * @return the customizer of the Tomcat server
+     * @author Zarzycki Alexis
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> photoResourcesCustomizer() {
+        return factory -> factory.addContextCustomizers(context -> context.addLifecycleListener(event -> {
+            if (!Lifecycle.CONFIGURE_START_EVENT.equals(event.getType())) return;
+            try {
+                Files.createDirectories(PhotoStorage.DIRECTORY);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            String mount = PhotoStorage.URL_PREFIX.substring(0, PhotoStorage.URL_PREFIX.length() - 1);
+            context.getResources().addPreResources(
+                    new DirResourceSet(context.getResources(), mount, PhotoStorage.DIRECTORY.toString(), "/"));
+        }));
+    }
+
+    /**
+     * The servlet sending the photos
+     * @param sendfileSize the size from which the files are sent by the operating system
+     * @return the registration of the servlet on /uploads/*
+     * @author Zarzycki Alexis
+     */
+    @Bean
+    public ServletRegistrationBean<DefaultServlet> photoServlet(@Value("${photo.serving.sendfile-size:48KB}") DataSize sendfileSize) {
+        ServletRegistrationBean<DefaultServlet> registration =
+                new ServletRegistrationBean<>(new DefaultServlet(), PhotoStorage.URL_PREFIX + "*");
+        registration.setName("photos");
+        registration.addInitParameter("listings", "false");
+        registration.addInitParameter("showServerInfo", "false");
+        registration.addInitParameter("sendfileSize", String.valueOf(sendfileSize.toKilobytes()));
+        registration.setLoadOnStartup(1);
+        return registration;
+    }
+
+    /**
+     * The filter giving the cache duration of the photos
+     * @param maxAge the time the clients keep the files named by their content
+     * @return the registration of the filter on /uploads/*
+     * @author Zarzycki Alexis
+     */
+    @Bean
+    public FilterRegistrationBean<PhotoCacheControlFilter> photoCacheControlFilter(@Value("${photo.serving.max-age:365d}") Duration maxAge) {
+        FilterRegistrationBean<PhotoCacheControlFilter> registration =
+                new FilterRegistrationBean<>(new PhotoCacheControlFilter(maxAge));
+        registration.addUrlPatterns(PhotoStorage.URL_PREFIX + "*");
+        return registration;
+    }
+}
@@ -0,0 +1,52 @@
+package be.anticair.anticairapi;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * DataSource sending the read-only transactions to the read replica, and everything else to the primary.
+ *
+ * <p>It must be wrapped in a LazyConnectionDataSourceProxy: the connection is then only taken at the first
+ * statement, once the transaction is marked as read-only.</p>
+ *
+ * <p>The replica can be late, so the reads whose result is kept (in a cache, behind an ETag) or followed by a write
+ * must see the last commits: they are done in a read-write transaction ({@code @Transactional} on the method of the
+ * service), which is sent to the primary like the writes.</p>
+ *
+ * @author Zarzycki Alexis
+ * @see DataSourceRoutingConfig
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The databases
+     */
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    /**
+     * Constructor
+     * @param lagMonitor the monitor of the lag of the replica
+     * @author Zarzycki Alexis
+     */
+    public ReadReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    /**
+     * Choose the database of the current transaction, the primary if the replica is too late
+     * @return the route of the database
+     * @author Zarzycki Alexis
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && lagMonitor.isReplicaUsable()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+}
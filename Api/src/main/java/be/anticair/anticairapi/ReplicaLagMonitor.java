@@ -0,0 +1,105 @@
+package be.anticair.anticairapi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure regularly the replication lag of the read replica, to know if the read-only transactions can use it
+ *
+ * @author Zarzycki Alexis
+ * @see ReadReplicaRoutingDataSource
+ */
+public class ReplicaLagMonitor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    /**
+     * The lag in milliseconds: 0 if the replica has replayed everything it received (or isn't a standby),
+     * null if it has not replayed any transaction yet
+     */
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint END";
+
+    private final DataSource replica;
+    private final long maxLagMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replica-lag-monitor").daemon().factory());
+
+    private volatile boolean usable = false;
+    private volatile long lagMillis = -1;
+
+    /**
+     * Constructor, the replica is not used until the first measure
+     * @param replica the pool of the read replica
+     * @param maxLag the maximum lag to use the replica
+     * @param interval the interval between two measures
+     * @author Zarzycki Alexis
+     */
+    public ReplicaLagMonitor(DataSource replica, Duration maxLag, Duration interval) {
+        this.replica = replica;
+        this.maxLagMillis = maxLag.toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::check, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Know if the read-only transactions can use the replica
+     * @return true if the last measure of the lag is under the maximum
+     * @author Zarzycki Alexis
+     */
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    /**
+     * Get the last measure of the lag
+     * @return the lag in milliseconds, -1 if it is unknown
+     * @author Zarzycki Alexis
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Measure the lag of the replica, the replica is not used if it can't be measured
+     * @author Zarzycki Alexis
+     */
+    private void check() {
+        boolean wasUsable = usable;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(LAG_QUERY)) {
+            result.next();
+            long lag = result.getLong(1);
+            lagMillis = result.wasNull() ? -1 : lag;
+            usable = lagMillis >= 0 && lagMillis <= maxLagMillis;
+        } catch (SQLException | RuntimeException e) {
+            lagMillis = -1;
+            usable = false;
+            logger.debug("Unable to measure the lag of the replica", e);
+        }
+        if (wasUsable != usable) {
+            logger.warn(usable ? "Read replica used again (lag {} ms)" : "Read replica not used, reads go to the primary (lag {} ms)", lagMillis);
+        }
+    }
+
+    /**
+     * Stop the measures
+     * @author Zarzycki Alexis
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -3,26 +3,14 @@ package be.anticair.anticairapi;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
- * The Web Configuration
+ * The Web Configuration, the photos are served by {@link PhotoServingConfig}
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
-    /**
-     * Add the resoucle handlers
-     * @param registry the registry
-     */
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + System.getProperty("user.dir") + "/uploads/");
-
-    }
-
     /**
      * Add the cors configuration
      * @return a new WebMvcConfigurer
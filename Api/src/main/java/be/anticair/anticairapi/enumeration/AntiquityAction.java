@@ -0,0 +1,25 @@
+package be.anticair.anticairapi.enumeration;
+
+/**
+ * Enumeration of the actions changing the state of an antiquity
+ * @author Zarzycki Alexis
+ * @see AntiquityState
+ */
+public enum AntiquityAction {
+    /**
+     * An antiquarian accepts the antiquity
+     */
+    ACCEPT,
+    /**
+     * An antiquarian rejects the antiquity
+     */
+    REJECT,
+    /**
+     * The seller modifies the antiquity
+     */
+    EDIT,
+    /**
+     * The antiquity is bought
+     */
+    SELL
+}
@@ -42,4 +42,26 @@ public enum AntiquityState {
     AntiquityState(final int state) {
         this.state = state;
     }
+
+    /**
+     * The states indexed by their value + 1 (the values go from -1 to 3)
+     */
+    private static final AntiquityState[] BY_STATE = new AntiquityState[values().length];
+
+    static {
+        for (AntiquityState antiquityState : values()) {
+            BY_STATE[antiquityState.state + 1] = antiquityState;
+        }
+    }
+
+    /**
+     * Find the state from its value stored in the database
+     * @param state the value of the state
+     * @return the state, null if the value is unknown
+     * @author Zarzycki Alexis
+     */
+    public static AntiquityState fromState(int state) {
+        int index = state + 1;
+        return index >= 0 && index < BY_STATE.length ? BY_STATE[index] : null;
+    }
 }
@@ -2,29 +2,59 @@ package be.anticair.anticairapi.keycloak.controller;
 
 
 import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.ListingChanges;
+import be.anticair.anticairapi.Class.ListingFilter;
+import be.anticair.anticairapi.Class.ListingFilterResult;
+import be.anticair.anticairapi.Class.ListingPage;
+import be.anticair.anticairapi.Class.ListingStats;
+import be.anticair.anticairapi.Class.ListingSummary;
 import be.anticair.anticairapi.Class.ListingWithPhotosDto;
+import be.anticair.anticairapi.Class.Money;
 import be.anticair.anticairapi.Class.PhotoAntiquity;
+import be.anticair.anticairapi.Class.PhotoIngestionStatus;
+import be.anticair.anticairapi.Class.ReviewDecision;
+import be.anticair.anticairapi.Class.ReviewResult;
 import be.anticair.anticairapi.PaypalConfig;
 import be.anticair.anticairapi.enumeration.AntiquityState;
+import be.anticair.anticairapi.keycloak.service.HibernateCacheStatistics;
+import be.anticair.anticairapi.keycloak.service.ListingCatalogCache;
+import be.anticair.anticairapi.keycloak.service.ListingEventBroadcaster;
+import be.anticair.anticairapi.keycloak.service.ListingExportService;
+import be.anticair.anticairapi.keycloak.service.ListingFilterService;
+import be.anticair.anticairapi.keycloak.service.ListingReviewService;
 import be.anticair.anticairapi.keycloak.service.ListingService;
+import be.anticair.anticairapi.keycloak.service.ListingStatsService;
+import be.anticair.anticairapi.keycloak.service.ListingVersionRegistry;
+import be.anticair.anticairapi.keycloak.service.ListingWithPhotosAssembler;
 import be.anticair.anticairapi.keycloak.service.PhotoAntiquityService;
+import be.anticair.anticairapi.keycloak.service.PhotoIngestionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.paypal.api.payments.Invoice;
 import com.paypal.api.payments.Payer;
 import com.paypal.api.payments.Payment;
 import com.paypal.api.payments.Transaction;
 import com.paypal.base.rest.PayPalRESTException;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -39,7 +69,27 @@ public class ListingController {
     @Autowired
     private PhotoAntiquityService photoAntiquityService;
     @Autowired
+    private PhotoIngestionService photoIngestionService;
+    @Autowired
     private PaypalConfig paypalConfig;
+    @Autowired
+    private ListingWithPhotosAssembler listingWithPhotosAssembler;
+    @Autowired
+    private ListingCatalogCache listingCatalogCache;
+    @Autowired
+    private ListingVersionRegistry listingVersionRegistry;
+    @Autowired
+    private ListingExportService listingExportService;
+    @Autowired
+    private ListingFilterService listingFilterService;
+    @Autowired
+    private ListingEventBroadcaster listingEventBroadcaster;
+    @Autowired
+    private HibernateCacheStatistics hibernateCacheStatistics;
+    @Autowired
+    private ListingReviewService listingReviewService;
+    @Autowired
+    private ListingStatsService listingStatsService;
 
 
     /**
@@ -53,16 +103,19 @@ public class ListingController {
      * @param id the ID of the antiquity to update
      * @param antiquityJson a JSON string representing the new details of the antiquity
      * @param images a list of {@link MultipartFile} objects representing the new photos to associate with the antiquity (optional)
-     * @return a {@link ResponseEntity} containing a message indicating success or failure
+     * @param version the version of the antiquity read by the client (optional), to refuse the update if it has been modified since
+     * @return a {@link ResponseEntity} containing a message indicating success or failure,
+     *         409 Conflict if the antiquity has been modified by someone else
      *
      * @author Neve Thierry
-     * @see ListingService#updateListing(Long, Listing)
+     * @see ListingService#updateListing(Long, Listing, Long)
      * @see PhotoAntiquityService#updatePhotos(Integer, List)
      * @see Listing
      * @see MultipartFile
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Map<String,String>> updateAntiquityWithPhotos(@PathVariable Integer id, @RequestParam("antiquity") String antiquityJson, @RequestParam(value = "images", required = false) List<MultipartFile> images) {
+    public ResponseEntity<Map<String,String>> updateAntiquityWithPhotos(@PathVariable Integer id, @RequestParam("antiquity") String antiquityJson, @RequestParam(value = "images", required = false) List<MultipartFile> images,
+                                                                        @RequestParam(value = "version", required = false) Long version) {
         try {
             // Deserialize the antiquity JSON into a Listing object
             ObjectMapper objectMapper = new ObjectMapper();
@@ -70,7 +123,7 @@ public class ListingController {
 
             // Call the Listing service and the Images service to update the antiquity
             if(antiquity != null){
-                listingService.updateListing(Long.valueOf(id), antiquity);
+                listingService.updateListing(Long.valueOf(id), antiquity, version);
             }
             if(images!=null){
                 photoAntiquityService.updatePhotos(id, images);
@@ -79,6 +132,10 @@ public class ListingController {
             Map<String, String> responseMessage = new HashMap<>();
             responseMessage.put("message", "Antiquity updated successfully");
             return ResponseEntity.ok(responseMessage);
+        } catch (OptimisticLockingFailureException e) {
+            Map<String, String> responseMessage = new HashMap<>();
+            responseMessage.put("message", "The antiquity has been modified by someone else, reload it and try again");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(responseMessage);
         } catch (Exception e) {
             Map<String, String> responseMessage = new HashMap<>();
             responseMessage.put("message", e.getMessage());
@@ -96,7 +153,8 @@ public class ListingController {
      * @param description The description of the listing.
      * @param price The price of the listing.
      * @param photos The images associated with the listing.
-     * @return ResponseEntity indicating the creation status.
+     * @return ResponseEntity indicating the creation status: created, or accepted with the location of the status of
+     *         the photos when they are still being saved
      * @author Blommaert Youry
      */
     @PostMapping("/create")
@@ -104,7 +162,7 @@ public class ListingController {
             @RequestParam("email") String email,
             @RequestParam("title") String title,
             @RequestParam("description") String description,
-            @RequestParam("price") Double price,
+            @RequestParam("price") BigDecimal price,
             @RequestParam(value = "photos", required = false) List<MultipartFile> photos) {
 
         try {
@@ -112,12 +170,17 @@ public class ListingController {
             Listing newListing = new Listing();
             newListing.setTitleAntiquity(title);
             newListing.setDescriptionAntiquity(description);
-            newListing.setPriceAntiquity(price);
+            newListing.setPrice(Money.of(price));
 
             // call the Listing service to create the listing
             Listing createdListing = listingService.createListing(email, newListing, photos);
 
-            // Return the created listing
+            // Return the created listing, the photos are still being saved
+            if (photos != null && !photos.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .header(HttpHeaders.LOCATION, "/api/listing/" + createdListing.getIdAntiquity() + "/photos/status")
+                        .body(createdListing);
+            }
             return ResponseEntity.status(HttpStatus.CREATED).body(createdListing);
 
         } catch (IllegalArgumentException e) {
@@ -135,26 +198,49 @@ public class ListingController {
     }
 
 
+    /**
+     * Get the progress of the saving of the photos sent with a listing
+     *
+     * @param id the id of the listing
+     * @return ResponseEntity containing the status of the photos, or not found if no photos are being saved for this listing
+     * @author Zarzycki Alexis
+     * @see PhotoIngestionService#getStatus(Integer)
+     */
+    @GetMapping("/{id}/photos/status")
+    public ResponseEntity<PhotoIngestionStatus> getPhotoIngestionStatus(@PathVariable Integer id) {
+        return photoIngestionService.getStatus(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
     /**
      * Retrieves a listing by its ID along with its associated photos.
      *
      * <p>This endpoint retrieves a listing and its associated photos using the given ID.
      * If the listing is found, it returns a {@link ListingWithPhotosDto} object in the response.
-     * If no listing is found with the provided ID, it returns a {@link HttpStatus#NOT_FOUND} response.</p>
+     * If no listing is found with the provided ID, it returns a {@link HttpStatus#NOT_FOUND} response.
+     * If the ETag given in If-None-Match is still the current one, it returns a {@link HttpStatus#NOT_MODIFIED}
+     * response without reading the listing.</p>
      *
      * @param id the ID of the listing to retrieve
+     * @param request the request, to check the If-None-Match header
      * @return a {@link ResponseEntity} containing a {@link ListingWithPhotosDto} object if found,
      *         or a {@link HttpStatus#NOT_FOUND} status if the listing is not found
      *
      * @author Neve Thierry
      * @see ListingService#getListingById(Integer)
+     * @see ListingVersionRegistry#listingETag(Integer)
      * @see ListingWithPhotosDto
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ListingWithPhotosDto> getListingById(@PathVariable Integer id) {
+    public ResponseEntity<ListingWithPhotosDto> getListingById(@PathVariable Integer id, WebRequest request) {
+        String eTag = listingVersionRegistry.listingETag(id);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache()).build();
+        }
         try {
             ListingWithPhotosDto response = listingService.getListingById(id);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(response);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
@@ -163,20 +249,167 @@ public class ListingController {
 
     /**
      * Get all listings in the database.
+     * If the ETag given in If-None-Match is still the current one, a {@link HttpStatus#NOT_MODIFIED} response
+     * is returned without reading the listings.
      *
-     * @return ResponseEntity containing a list of all listings.
+     * @param request the request, to check the If-None-Match header
+     * @return ResponseEntity containing a list of all listings with their photos.
      * @author Blommaert Youry
+     * @see ListingVersionRegistry#catalogETag()
      */
     @GetMapping("/checked")
-    public ResponseEntity<List<Listing>> getAllListingsChecked() {
+    public ResponseEntity<List<ListingWithPhotosDto>> getAllListingsChecked(WebRequest request) {
+        String eTag = listingVersionRegistry.catalogETag();
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache()).build();
+        }
         try {
-            List<Listing> response = listingService.getAllListingsAccepted();
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(listingService.getAllListingsAcceptedWithPhotos());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
     }
 
+    /**
+     * Get a page of the listings accepted in the database.
+     *
+     * <p>Unlike {@link #getAllListingsChecked(WebRequest)}, the response size doesn't grow with the catalog:
+     * the client asks the first page without cursor and follows the {@code nextCursor} of each page
+     * until it is null.</p>
+     *
+     * @param cursor the opaque cursor returned with the previous page (optional)
+     * @param size the number of listings wanted (optional)
+     * @return ResponseEntity containing the page of listings with their photos, or a bad request with the message of the error
+     *         if the cursor or the size is not valid
+     * @author Zarzycki Alexis
+     * @see ListingService#getListingsAcceptedPage(String, Integer)
+     */
+    @GetMapping("/checked/page")
+    public ResponseEntity<?> getListingsCheckedPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                    @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            ListingPage<ListingSummary> page = listingService.getListingsAcceptedPage(cursor, size);
+            return ResponseEntity.ok(new ListingPage<>(listingWithPhotosAssembler.toDtos(page.getItems()), page.getNextCursor()));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> responseMessage = new HashMap<>();
+            responseMessage.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseMessage);
+        }
+    }
+
+    /**
+     * Export all the listings accepted, one JSON object by line (NDJSON).
+     *
+     * <p>The listings are written as soon as they are read from the database, so the memory
+     * used doesn't depend on the size of the catalog.</p>
+     *
+     * @param gzip true to compress the response with gzip
+     * @param response the response, where the listings are written
+     * @throws IOException if the response can't be written
+     * @author Zarzycki Alexis
+     * @see ListingExportService#exportAcceptedListings(OutputStream)
+     */
+    @GetMapping("/export")
+    public void exportListings(@RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"listings.ndjson" + (gzip ? ".gz" : "") + "\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            try (GZIPOutputStream output = new GZIPOutputStream(response.getOutputStream(), 8192, true)) {
+                listingExportService.exportAcceptedListings(output);
+            }
+        } else {
+            listingExportService.exportAcceptedListings(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Search in the title and the description of the listings accepted.
+     *
+     * @param query the text searched
+     * @param cursor the opaque cursor returned with the previous page (optional)
+     * @param size the number of listings wanted (optional)
+     * @return ResponseEntity containing the page of listings with their photos, the most relevant first,
+     *         or a bad request if the search, the cursor or the size is not valid
+     * @author Zarzycki Alexis
+     * @see ListingService#searchListingsAccepted(String, String, Integer)
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchListings(@RequestParam("q") String query,
+                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            ListingPage<ListingSummary> page = listingService.searchListingsAccepted(query, cursor, size);
+            return ResponseEntity.ok(new ListingPage<>(listingWithPhotosAssembler.toDtos(page.getItems()), page.getNextCursor()));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> responseMessage = new HashMap<>();
+            responseMessage.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseMessage);
+        }
+    }
+
+    /**
+     * Stream the listings accepted and sold, as Server-Sent Events ("accepted" and "sold" events with the id,
+     * the title and the price of the listing), instead of polling the catalog.
+     *
+     * @return the emitter of the events of the client
+     * @author Zarzycki Alexis
+     * @see ListingEventBroadcaster
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamListings() {
+        return listingEventBroadcaster.subscribe();
+    }
+
+    /**
+     * Get the changes of the catalog of the accepted listings since the last sync of the client.
+     *
+     * <p>The client gives the nextSince of the previous response (0 the first time), applies the upserts and
+     * removes the tombstones from its copy, and calls again while hasMore is true.</p>
+     *
+     * @param since the position of the last change read, 0 by default
+     * @param limit the number of changes wanted, the default size of a page if not given
+     * @return ResponseEntity containing the changes, or a bad request if the position or the limit is not valid
+     * @author Zarzycki Alexis
+     * @see ListingService#getListingChangesSince(Long, Integer)
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getListingChanges(@RequestParam(value = "since", required = false) Long since,
+                                               @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(listingService.getListingChangesSince(since, limit));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> responseMessage = new HashMap<>();
+            responseMessage.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseMessage);
+        }
+    }
+
+    /**
+     * Filter the public listings by price range, state, seller and text, with the facets of the filter.
+     *
+     * <p>The criteria are given as query parameters (minPrice, maxPrice, state, mailSeller, text, sort, page, size).
+     * The response contains the page of listings, the number of listings matching, and the number of listings
+     * by range of price and by state.</p>
+     *
+     * @param filter the criteria of the filter
+     * @return ResponseEntity containing the page of listings with the facets, or a bad request if a criterion is not valid
+     * @author Zarzycki Alexis
+     * @see ListingFilterService#filter(ListingFilter)
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterListings(ListingFilter filter) {
+        try {
+            return ResponseEntity.ok(listingFilterService.filter(filter));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> responseMessage = new HashMap<>();
+            responseMessage.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseMessage);
+        }
+    }
+
     /**
      * Reject an antiquity and send mails.
      *
@@ -217,6 +450,26 @@ public class ListingController {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(responseMessage);
     }
 
+    /**
+     * Accept or reject several antiquities at once, in one transaction. The mails are sent once the review is saved.
+     *
+     * @param decisions the decisions (id, ACCEPT or REJECT, and the review to reject)
+     * @return ResponseEntity containing the result of each decision, or a bad request if there are no decisions or too many
+     * @author Zarzycki Alexis
+     * @see ListingReviewService#review(List)
+     */
+    @PreAuthorize("hasAuthority('ROLE_Antiquarian')")
+    @PutMapping("/review")
+    public ResponseEntity<?> reviewAntiquities(@RequestBody List<ReviewDecision> decisions) {
+        try {
+            return ResponseEntity.ok(listingReviewService.review(decisions));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> responseMessage = new HashMap<>();
+            responseMessage.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseMessage);
+        }
+    }
+
 
     /**
      * Handles the purchase process for a specific listing by its ID.
@@ -240,6 +493,10 @@ public class ListingController {
             if(listing.getState() == AntiquityState.SOLD.getState()){
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Listing already sold");
             }
+            if(!listingService.canBeSold(Long.valueOf(listing.getIdAntiquity()))){
+                responseMessage.put("message", "Listing can't be sold");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseMessage);
+            }
 
             Payment payment = paypalConfig.createPayment(
                     listing.getPriceAntiquity(),
@@ -278,24 +535,23 @@ public class ListingController {
                                             @RequestParam("PayerID") String payerId) {
         Map<String, String> responseMessage = new HashMap<>();
         try {
+            // The listing is checked before the buyer is charged: once the payment is executed, it must be marked as sold
+            if (!listingService.canBeSold(listingIdOf(paypalConfig.getPayment(paymentId)))) {
+                responseMessage.put("message", "Listing can't be sold");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(responseMessage);
+            }
+
             Payment payment = paypalConfig.executePayment(paymentId, payerId);
 
             // Check the payment state
             if ("approved".equals(payment.getState())) {
-                String listingIdCustomField = payment.getTransactions()
-                        .get(0)
-                        .getCustom();
-
-                if (listingIdCustomField == null || listingIdCustomField.isEmpty()) {
-                    throw new IllegalArgumentException("Listing ID missing in payment metadata.");
-                }
                 Transaction transaction = payment.getTransactions().get(0);
                 Payer payer = payment.getPayer();
                 String invoiceDescription = transaction.getDescription();
                 Double amount = Double.valueOf(transaction.getAmount().getTotal());
                 String currency = transaction.getAmount().getCurrency();
                 int quantity = 1;
-                Long listingId = Long.valueOf(listingIdCustomField);
+                Long listingId = listingIdOf(payment);
 
                 Invoice invoice = paypalConfig.createAndSendInvoice(
                         payer,
@@ -328,6 +584,25 @@ public class ListingController {
         }
     }
 
+    /**
+     * The ID of the listing bought by a payment, given to PayPal when the payment was created
+     *
+     * @param payment the PayPal payment
+     * @return the ID of the listing
+     * @throws IllegalArgumentException if the ID is missing in the payment
+     * @author Zarzycki Alexis
+     */
+    private static Long listingIdOf(Payment payment) {
+        String listingIdCustomField = payment.getTransactions()
+                .get(0)
+                .getCustom();
+
+        if (listingIdCustomField == null || listingIdCustomField.isEmpty()) {
+            throw new IllegalArgumentException("Listing ID missing in payment metadata.");
+        }
+        return Long.valueOf(listingIdCustomField);
+    }
+
     /**
      * Endpoint to retrieve all antiquities associated with a specific antiquarian that have a state of 0 or 1.
      *
@@ -341,32 +616,13 @@ public class ListingController {
      * @author Neve Thierry
      * @see ListingWithPhotosDto
      * @see PhotoAntiquity
-     * @see ListingService#getAntiquitiesByState(String)
+     * @see ListingService#getAntiquitySummariesByState(String)
      */
     @PreAuthorize("hasAuthority('ROLE_Antiquarian')")
     @GetMapping("/by-state")
     public ResponseEntity<List<ListingWithPhotosDto>> getAntiquitiesByState(@RequestParam String mailAntiquarian) {
-        List<ListingWithPhotosDto> antiquitiesWithPhoto = new ArrayList<>();
-        List<Listing> antiquities = listingService.getAntiquitiesByState(mailAntiquarian);
-        for(Listing antiquitie : antiquities) {
-            List<String> urlPhoto = new ArrayList<>();
-            List<PhotoAntiquity> photo = photoAntiquityService.findByIdAntiquity(antiquitie.getIdAntiquity());
-            ListingWithPhotosDto antiquityWithPhoto = new ListingWithPhotosDto();
-            for(PhotoAntiquity photoAntiquity : photo) {
-               urlPhoto.add(photoAntiquity.getPathPhoto()) ;
-            }
-            antiquityWithPhoto.setState(antiquitie.getState());
-            antiquityWithPhoto.setDescriptionAntiquity(antiquitie.getDescriptionAntiquity());
-            antiquityWithPhoto.setPriceAntiquity(antiquitie.getPriceAntiquity());
-            antiquityWithPhoto.setTitleAntiquity(antiquitie.getTitleAntiquity());
-            antiquityWithPhoto.setIdAntiquity(antiquitie.getIdAntiquity());
-            antiquityWithPhoto.setMailAntiquarian(antiquitie.getMailAntiquarian());
-            antiquityWithPhoto.setIsDisplay(antiquitie.getIsDisplay());
-            antiquityWithPhoto.setMailSeller(antiquitie.getMailSeller());
-            antiquityWithPhoto.setPhotos(urlPhoto);
-            antiquitiesWithPhoto.add(antiquityWithPhoto);
-        }
-        return ResponseEntity.ok(antiquitiesWithPhoto);
+        List<ListingSummary> antiquities = listingService.getAntiquitySummariesByState(mailAntiquarian);
+        return ResponseEntity.ok(listingWithPhotosAssembler.toDtos(antiquities));
     }
 
     /**
@@ -383,27 +639,8 @@ public class ListingController {
      */
     @GetMapping("/byMailSeller")
     public ResponseEntity<List<ListingWithPhotosDto>> getAntiquitiesByMailSeller(@RequestParam String mailSeller) {
-        List<ListingWithPhotosDto> antiquitiesWithPhoto = new ArrayList<>();
-        List<Listing> antiquities = listingService.getAntiquitiesByMailSeller(mailSeller);
-        for(Listing antiquitie : antiquities) {
-            List<String> urlPhoto = new ArrayList<>();
-            List<PhotoAntiquity> photo = photoAntiquityService.findByIdAntiquity(antiquitie.getIdAntiquity());
-            ListingWithPhotosDto antiquityWithPhoto = new ListingWithPhotosDto();
-            for(PhotoAntiquity photoAntiquity : photo) {
-                urlPhoto.add(photoAntiquity.getPathPhoto()) ;
-            }
-            antiquityWithPhoto.setState(antiquitie.getState());
-            antiquityWithPhoto.setDescriptionAntiquity(antiquitie.getDescriptionAntiquity());
-            antiquityWithPhoto.setPriceAntiquity(antiquitie.getPriceAntiquity());
-            antiquityWithPhoto.setTitleAntiquity(antiquitie.getTitleAntiquity());
-            antiquityWithPhoto.setIdAntiquity(antiquitie.getIdAntiquity());
-            antiquityWithPhoto.setMailAntiquarian(antiquitie.getMailAntiquarian());
-            antiquityWithPhoto.setIsDisplay(antiquitie.getIsDisplay());
-            antiquityWithPhoto.setMailSeller(antiquitie.getMailSeller());
-            antiquityWithPhoto.setPhotos(urlPhoto);
-            antiquitiesWithPhoto.add(antiquityWithPhoto);
-        }
-        return ResponseEntity.ok(antiquitiesWithPhoto);
+        List<ListingSummary> antiquities = listingService.getAntiquitySummariesByMailSeller(mailSeller);
+        return ResponseEntity.ok(listingWithPhotosAssembler.toDtos(antiquities));
     }
 
     /**
@@ -422,4 +659,48 @@ public class ListingController {
         Listing listing = listingService.updateIsDisplay(id);
         return ResponseEntity.ok(listing);
     }
+
+    /**
+     * Get the statistics of the cache of the accepted listings
+     *
+     * @return ResponseEntity containing the number of hits, misses, evictions and the size of the cache
+     * @author Zarzycki Alexis
+     * @see ListingCatalogCache#getStatistics()
+     */
+    @PreAuthorize("hasAuthority('ROLE_Admin')")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Long>> getCacheStatistics() {
+        return ResponseEntity.ok(listingCatalogCache.getStatistics());
+    }
+
+    /**
+     * Get the statistics of the regions of the second-level cache of Hibernate
+     *
+     * @return ResponseEntity containing the number of hits, misses, puts and entries of each region,
+     *         not found if the statistics aren't counted
+     * @author Zarzycki Alexis
+     * @see HibernateCacheStatistics#getRegionStatistics()
+     */
+    @PreAuthorize("hasAuthority('ROLE_Admin')")
+    @GetMapping("/cache/regions")
+    public ResponseEntity<Map<String, Map<String, Long>>> getCacheRegionStatistics() {
+        if (!hibernateCacheStatistics.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(hibernateCacheStatistics.getRegionStatistics());
+    }
+
+    /**
+     * Get the statistics of the catalog: number of listings and price aggregates by state,
+     * and number of listings waiting for the review of each antiquarian
+     *
+     * @return ResponseEntity containing the statistics
+     * @author Zarzycki Alexis
+     * @see ListingStatsService#getStats()
+     */
+    @PreAuthorize("hasAuthority('ROLE_Admin')")
+    @GetMapping("/stats")
+    public ResponseEntity<ListingStats> getListingStats() {
+        return ResponseEntity.ok(listingStatsService.getStats());
+    }
 }
@@ -0,0 +1,79 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.enumeration.AntiquityAction;
+import be.anticair.anticairapi.enumeration.AntiquityState;
+import be.anticair.anticairapi.enumeration.TypeOfMail;
+
+import static be.anticair.anticairapi.enumeration.AntiquityAction.*;
+import static be.anticair.anticairapi.enumeration.AntiquityState.*;
+
+/**
+ * The allowed changes of state of an antiquity, in a table computed once (state x action),
+ * so finding a transition is a lookup in an array, without allocation.
+ *
+ * <table>
+ *     <tr><th>Action</th><th>From</th><th>To</th><th>Side effects</th></tr>
+ *     <tr><td>ACCEPT</td><td>NEED_TO_BE_CHECKED</td><td>ACCEPTED</td><td>mail to the seller, commission</td></tr>
+ *     <tr><td>ACCEPT</td><td>ACCEPTED_BUT_MODIFIED</td><td>ACCEPTED</td><td>mail to the seller</td></tr>
+ *     <tr><td>REJECT</td><td>NEED_TO_BE_CHECKED</td><td>REJECTED</td><td>mail to the seller</td></tr>
+ *     <tr><td>REJECT</td><td>ACCEPTED_BUT_MODIFIED</td><td>ACCEPTED_BUT_MODIFIED</td><td>mail to the seller</td></tr>
+ *     <tr><td>EDIT</td><td>REJECTED</td><td>NEED_TO_BE_CHECKED</td><td>mail to the antiquarian</td></tr>
+ *     <tr><td>EDIT</td><td>NEED_TO_BE_CHECKED</td><td>NEED_TO_BE_CHECKED</td><td></td></tr>
+ *     <tr><td>EDIT</td><td>ACCEPTED</td><td>ACCEPTED_BUT_MODIFIED</td><td>mail to the antiquarian</td></tr>
+ *     <tr><td>EDIT</td><td>ACCEPTED_BUT_MODIFIED</td><td>ACCEPTED_BUT_MODIFIED</td><td></td></tr>
+ *     <tr><td>SELL</td><td>ACCEPTED, ACCEPTED_BUT_MODIFIED</td><td>SOLD</td><td></td></tr>
+ * </table>
+ *
+ * @author Zarzycki Alexis
+ */
+public final class AntiquityStateMachine {
+
+    private static final AntiquityTransition[][] TRANSITIONS =
+            new AntiquityTransition[AntiquityState.values().length][AntiquityAction.values().length];
+
+    static {
+        allow(NEED_TO_BE_CHECKED, ACCEPT, ACCEPTED, TypeOfMail.VALIDATIONOFANANTIQUITY, true);
+        allow(ACCEPTED_BUT_MODIFIED, ACCEPT, ACCEPTED, TypeOfMail.VALIDATIONOFANANTIQUITY, false);
+
+        allow(NEED_TO_BE_CHECKED, REJECT, REJECTED, TypeOfMail.REJECTIONOFANTIQUITY, false);
+        allow(ACCEPTED_BUT_MODIFIED, REJECT, ACCEPTED_BUT_MODIFIED, TypeOfMail.REJECTIONOFANTIQUITY, false);
+
+        allow(REJECTED, EDIT, NEED_TO_BE_CHECKED, TypeOfMail.NEWANTIQUITY, false);
+        allow(NEED_TO_BE_CHECKED, EDIT, NEED_TO_BE_CHECKED, null, false);
+        allow(ACCEPTED, EDIT, ACCEPTED_BUT_MODIFIED, TypeOfMail.NEWANTIQUITY, false);
+        allow(ACCEPTED_BUT_MODIFIED, EDIT, ACCEPTED_BUT_MODIFIED, null, false);
+
+        allow(ACCEPTED, SELL, SOLD, null, false);
+        allow(ACCEPTED_BUT_MODIFIED, SELL, SOLD, null, false);
+    }
+
+    private AntiquityStateMachine() {
+    }
+
+    private static void allow(AntiquityState from, AntiquityAction action, AntiquityState to, TypeOfMail mail, boolean applyCommission) {
+        TRANSITIONS[from.ordinal()][action.ordinal()] = new AntiquityTransition(to, mail, applyCommission);
+    }
+
+    /**
+     * Find the transition of an action on an antiquity
+     * @param from the current state of the antiquity, can be null
+     * @param action the action
+     * @return the transition, null if the action isn't allowed from this state
+     * @author Zarzycki Alexis
+     */
+    public static AntiquityTransition transition(AntiquityState from, AntiquityAction action) {
+        if (from == null) return null;
+        return TRANSITIONS[from.ordinal()][action.ordinal()];
+    }
+
+    /**
+     * Find the transition of an action on an antiquity
+     * @param from the current state of the antiquity, as stored in the database, can be null
+     * @param action the action
+     * @return the transition, null if the action isn't allowed from this state
+     * @author Zarzycki Alexis
+     */
+    public static AntiquityTransition transition(Integer from, AntiquityAction action) {
+        return transition(from == null ? null : AntiquityState.fromState(from), action);
+    }
+}
@@ -0,0 +1,31 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.enumeration.AntiquityState;
+import be.anticair.anticairapi.enumeration.TypeOfMail;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An allowed change of state of an antiquity, with its side effects
+ * @author Zarzycki Alexis
+ * @see AntiquityStateMachine
+ */
+@Getter
+@AllArgsConstructor
+public class AntiquityTransition {
+
+    /**
+     * The state of the antiquity after the transition
+     */
+    private final AntiquityState target;
+
+    /**
+     * The mail to send after the transition, null if there is none
+     */
+    private final TypeOfMail mail;
+
+    /**
+     * True if the commission must be applied to the price
+     */
+    private final boolean applyCommission;
+}
@@ -1,5 +1,7 @@
 package be.anticair.anticairapi.keycloak.service;
 
+import be.anticair.anticairapi.Class.Commission;
+import be.anticair.anticairapi.Class.Money;
 import be.anticair.anticairapi.enumeration.TypeOfMail;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.InternetAddress;
@@ -13,11 +15,8 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -66,11 +65,8 @@ public class EmailService {
                    break;
                case 2: //Application of the commission, so notify the antiquarian
                    htmlTemplate = this.replaceAntiquityInformation(htmlTemplate,otherInformation);
-                   double priceWithCommission = Double.parseDouble(otherInformation.get("price"));
-                   double commissionDouble = priceWithCommission/1.20;
-                   priceWithCommission -= commissionDouble;
-                   String commissionString = Double.toString(priceWithCommission);
-                   htmlTemplate = htmlTemplate.replace("${commission}", commissionString);
+                   // The commission included in the price
+                   htmlTemplate = htmlTemplate.replace("${commission}", this.commissionOf(otherInformation.get("price")));
                    break;
                case 3: //Rejection of an antiquity, so notify the owner
                    htmlTemplate = this.replaceAntiquityInformation(htmlTemplate,otherInformation);
@@ -90,19 +86,8 @@ public class EmailService {
                case 7: // Warning the user that they received a payment
                    htmlTemplate = this.replaceAntiquityInformation(htmlTemplate, otherInformation);
 
-                   // Get the price with commission
-                   double priceWithCommission2 = Double.parseDouble(otherInformation.get("price"));
-
-                   // Calculate the commission (20%)
-                   double commissionDouble2 = priceWithCommission2 * 0.20;
-
-                   // Format commission to two decimal places
-                   DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);  // Force dot separator
-                   DecimalFormat df = new DecimalFormat("#.00", symbols);  // Always two decimal places
-                   String commissionString2 = df.format(commissionDouble2);
-
-                   // Replace the commission placeholder in the HTML template
-                   htmlTemplate = htmlTemplate.replace("${commission}", commissionString2);
+                   // The commission paid, the same part of the price as the one added to the balance
+                   htmlTemplate = htmlTemplate.replace("${commission}", this.commissionOf(otherInformation.get("price")));
                    break;
                 case 10:
                    break;
@@ -190,6 +175,17 @@ public class EmailService {
         return htmlTemplate;
     }
 
+    /**
+     * The commission included in a price written in a mail
+     * @param price the price, with two decimals, empty if the antiquity has no price
+     * @return the commission with two decimals, empty if there isn't price
+     * @author Zarzycki Alexis
+     */
+    private String commissionOf(String price) {
+        if (price == null || price.isEmpty()) return "";
+        return Commission.of(Money.parse(price)).toString();
+    }
+
     /**
      * Allow to repalce all the antiquity's information
      * @param htmlTemplate the template html
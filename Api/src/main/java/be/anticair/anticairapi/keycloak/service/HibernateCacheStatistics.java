@@ -0,0 +1,81 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of the regions of the second-level cache of Hibernate (configured in application.conf)
+ *
+ * @author Zarzycki Alexis
+ */
+@Component
+public class HibernateCacheStatistics {
+
+    /**
+     * The regions of the entities
+     */
+    private static final List<String> ENTITY_REGIONS = List.of("listing", "photo-antiquity");
+
+    /**
+     * The regions of the queries
+     */
+    private static final List<String> QUERY_REGIONS = List.of("photo-by-antiquity");
+
+    private final Statistics statistics;
+
+    /**
+     * Constructor
+     * @param entityManagerFactory the factory of the entity managers
+     * @author Zarzycki Alexis
+     */
+    public HibernateCacheStatistics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Know if the statistics are counted (spring.jpa.properties.hibernate.generate_statistics)
+     * @return true if the statistics are counted
+     * @author Zarzycki Alexis
+     */
+    public boolean isEnabled() {
+        return statistics.isStatisticsEnabled();
+    }
+
+    /**
+     * Get the statistics of each region
+     * @return the number of hits, misses, puts and entries in memory of each region
+     * @author Zarzycki Alexis
+     */
+    public Map<String, Map<String, Long>> getRegionStatistics() {
+        Map<String, Map<String, Long>> regions = new LinkedHashMap<>();
+        for (String region : ENTITY_REGIONS) {
+            regions.put(region, this.toMap(statistics.getDomainDataRegionStatistics(region)));
+        }
+        for (String region : QUERY_REGIONS) {
+            regions.put(region, this.toMap(statistics.getQueryRegionStatistics(region)));
+        }
+        return regions;
+    }
+
+    /**
+     * Convert the statistics of a region
+     * @param region the statistics of the region, null if the region has not been used yet
+     * @return the statistics
+     * @author Zarzycki Alexis
+     */
+    private Map<String, Long> toMap(CacheRegionStatistics region) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("hits", region == null ? 0L : region.getHitCount());
+        values.put("misses", region == null ? 0L : region.getMissCount());
+        values.put("puts", region == null ? 0L : region.getPutCount());
+        values.put("size", region == null ? 0L : Math.max(region.getElementCountInMemory(), 0L));
+        return values;
+    }
+}
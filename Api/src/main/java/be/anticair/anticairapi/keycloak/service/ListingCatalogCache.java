@@ -0,0 +1,152 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.ListingWithPhotosDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of the accepted listings with their photos.
+ *
+ * <p>The cache keeps the most recently read listings (the least recently read one is evicted
+ * when the cache is full) and the list of the whole accepted catalog. Both are invalidated by the
+ * {@link ListingChangedEvent} published by the services when a listing is modified.</p>
+ *
+ * <p>A value read from the database is only stored if no invalidation happened during the read,
+ * so a stale listing can't come back in the cache after its modification.</p>
+ *
+ * @author Zarzycki Alexis
+ */
+@Component
+public class ListingCatalogCache {
+
+    /**
+     * The listings by id, in access order
+     */
+    private final LinkedHashMap<Integer, ListingWithPhotosDto> listings;
+
+    /**
+     * The whole accepted catalog, null if it isn't cached
+     */
+    private List<ListingWithPhotosDto> catalog;
+
+    /**
+     * Incremented on each invalidation
+     */
+    private long generation;
+
+    /**
+     * The maximum size of the catalog to keep it in the cache
+     */
+    private final int maxCatalogSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param maxEntries the maximum number of listings kept by id
+     * @param maxCatalogSize the maximum size of the catalog to keep it in the cache
+     * @author Zarzycki Alexis
+     */
+    public ListingCatalogCache(@Value("${listing.cache.max-entries:1000}") int maxEntries,
+                               @Value("${listing.cache.max-catalog-size:5000}") int maxCatalogSize) {
+        this.maxCatalogSize = maxCatalogSize;
+        this.listings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ListingWithPhotosDto> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the current generation, to give to the put functions after a read in the database
+     * @return the current generation
+     * @author Zarzycki Alexis
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Get a listing from the cache
+     * @param id the id of the antiquity
+     * @return the listing with its photos, null if it isn't in the cache
+     * @author Zarzycki Alexis
+     */
+    public synchronized ListingWithPhotosDto get(Integer id) {
+        ListingWithPhotosDto listing = listings.get(id);
+        (listing == null ? misses : hits).incrementAndGet();
+        return listing;
+    }
+
+    /**
+     * Store a listing read from the database
+     * @param generation the generation read before the read in the database
+     * @param listing the listing with its photos
+     * @author Zarzycki Alexis
+     */
+    public synchronized void put(long generation, ListingWithPhotosDto listing) {
+        if (this.generation != generation) return;
+        listings.put(listing.getIdAntiquity(), listing);
+    }
+
+    /**
+     * Get the whole accepted catalog from the cache
+     * @return the listings with their photos, null if it isn't in the cache
+     * @author Zarzycki Alexis
+     */
+    public synchronized List<ListingWithPhotosDto> getCatalog() {
+        (catalog == null ? misses : hits).incrementAndGet();
+        return catalog;
+    }
+
+    /**
+     * Store the whole accepted catalog read from the database, if it isn't too big
+     * @param generation the generation read before the read in the database
+     * @param catalog the listings with their photos
+     * @author Zarzycki Alexis
+     */
+    public synchronized void putCatalog(long generation, List<ListingWithPhotosDto> catalog) {
+        if (this.generation != generation || catalog.size() > maxCatalogSize) return;
+        this.catalog = List.copyOf(catalog);
+    }
+
+    /**
+     * Invalidate a listing and the catalog once the modification is committed
+     * @param event the event of the modification
+     * @author Zarzycki Alexis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onListingChanged(ListingChangedEvent event) {
+        generation++;
+        listings.remove(event.getIdAntiquity());
+        catalog = null;
+    }
+
+    /**
+     * Get the statistics of the cache
+     * @return the number of hits, misses, evictions and the number of listings in the cache
+     * @author Zarzycki Alexis
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        statistics.put("size", (long) listings.size());
+        statistics.put("catalogSize", catalog == null ? 0L : catalog.size());
+        return statistics;
+    }
+}
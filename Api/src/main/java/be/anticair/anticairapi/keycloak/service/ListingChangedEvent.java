@@ -0,0 +1,18 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Event published each time a listing (or its photos) is modified in the database
+ * @author Zarzycki Alexis
+ */
+@Getter
+@AllArgsConstructor
+public class ListingChangedEvent {
+
+    /**
+     * The id of the modified antiquity
+     */
+    private final Integer idAntiquity;
+}
@@ -0,0 +1,180 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broadcast the accepted and sold listings to the clients of the stream (Server-Sent Events).
+ *
+ * <p>Each client has a bounded buffer: when a client reads slower than the events arrive, its oldest events
+ * are dropped, so a slow client never blocks the others nor the services. An idle client holds no thread,
+ * its buffer is only sent on a virtual thread when it has events. A comment is sent regularly to the idle
+ * clients to detect the closed connections.</p>
+ *
+ * @author Zarzycki Alexis
+ */
+@Component
+public class ListingEventBroadcaster {
+
+    private final Map<SseEmitter, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("listing-stream-heartbeat").daemon().factory());
+    private final AtomicLong nextEventId = new AtomicLong();
+
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    /**
+     * Constructor
+     * @param bufferSize the maximum number of events waiting to be sent to a client
+     * @param timeoutMillis the duration of a connection before the client has to reconnect
+     * @param heartbeatSeconds the interval between two comments sent to the idle clients
+     * @author Zarzycki Alexis
+     */
+    public ListingEventBroadcaster(@Value("${listing.stream.buffer-size:64}") int bufferSize,
+                                   @Value("${listing.stream.timeout-ms:1800000}") long timeoutMillis,
+                                   @Value("${listing.stream.heartbeat-seconds:30}") long heartbeatSeconds) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Register a new client of the stream
+     * @return the emitter of the events of the client
+     * @author Zarzycki Alexis
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        subscribers.put(emitter, new Subscriber(emitter));
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        return emitter;
+    }
+
+    /**
+     * Send an event to all the clients, once the transaction of the modification is committed
+     * @param event the listing accepted or sold
+     * @author Zarzycki Alexis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingStreamEvent(ListingStreamEvent event) {
+        SseEmitter.SseEventBuilder message = SseEmitter.event()
+                .id(Long.toString(nextEventId.incrementAndGet()))
+                .name(event.getType().name().toLowerCase(Locale.ROOT))
+                .data(event, MediaType.APPLICATION_JSON);
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.offer(message);
+        }
+    }
+
+    /**
+     * Send a comment to the clients without waiting events
+     * @author Zarzycki Alexis
+     */
+    private void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.offerHeartbeat();
+        }
+    }
+
+    /**
+     * Close the connections when the application stops
+     * @author Zarzycki Alexis
+     */
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        subscribers.keySet().forEach(SseEmitter::complete);
+        subscribers.clear();
+    }
+
+    /**
+     * A client of the stream, with the events waiting to be sent
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Deque<SseEmitter.SseEventBuilder> buffer = new ArrayDeque<>();
+        private boolean sending;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Add an event to the buffer, dropping the oldest one if it is full, and start to send if needed
+         * @param message the event
+         */
+        private void offer(SseEmitter.SseEventBuilder message) {
+            synchronized (this) {
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                }
+                buffer.addLast(message);
+                if (sending) return;
+                sending = true;
+            }
+            this.startSending();
+        }
+
+        /**
+         * Add a comment to the buffer if there is nothing to send
+         */
+        private void offerHeartbeat() {
+            synchronized (this) {
+                if (sending || !buffer.isEmpty()) return;
+                buffer.addLast(SseEmitter.event().comment("keep-alive"));
+                sending = true;
+            }
+            this.startSending();
+        }
+
+        private void startSending() {
+            try {
+                senders.execute(this::send);
+            } catch (RejectedExecutionException e) {
+                // The application is stopping
+            }
+        }
+
+        /**
+         * Send the buffer until it is empty, on a virtual thread
+         */
+        private void send() {
+            while (true) {
+                SseEmitter.SseEventBuilder message;
+                synchronized (this) {
+                    message = buffer.pollFirst();
+                    if (message == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(message);
+                } catch (IOException | IllegalStateException e) {
+                    // The client is gone
+                    subscribers.remove(emitter);
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
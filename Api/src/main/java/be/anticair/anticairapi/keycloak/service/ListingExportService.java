@@ -0,0 +1,124 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Service to export the accepted catalog as NDJSON (one JSON object by line).
+ *
+ * <p>The rows are read with a cursor of the database ({@code listing.export.fetch-size} rows at a time)
+ * and written to the output as soon as they are read, so the memory used doesn't depend on the size
+ * of the catalog.</p>
+ *
+ * @author Zarzycki Alexis
+ */
+@Service
+public class ListingExportService {
+
+    /**
+     * The accepted antiquities with the path of their photos, ordered by id
+     */
+    private static final String EXPORT_QUERY =
+            "SELECT a.id_antiquity, a.title_antiquity, a.description_antiquity, a.price_antiquity, a.mail_seller, " +
+            "ARRAY(SELECT p.path_photo FROM photo_antiquity p WHERE p.id_antiquity = a.id_antiquity ORDER BY p.id_photo) AS photos " +
+            "FROM antiquity a WHERE a.state = 1 ORDER BY a.id_antiquity";
+
+    /**
+     * Number of lines written between two flush of the output
+     */
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor
+     * @param dataSource the datasource
+     * @param transactionManager the transaction manager, the cursor of Postgres needs a transaction
+     * @param objectMapper the object mapper, to write the JSON
+     * @param fetchSize the number of rows read at a time
+     * @author Zarzycki Alexis
+     */
+    public ListingExportService(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                @Value("${listing.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write all the accepted listings in the output, one JSON object by line
+     * @param output the output, it isn't closed
+     * @throws IOException if the output can't be written
+     * @author Zarzycki Alexis
+     */
+    public void exportAcceptedListings(OutputStream output) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // The objects are separated by a new line, not by the default space
+            generator.setRootValueSeparator(null);
+            int[] written = {0};
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(EXPORT_QUERY, resultSet -> {
+                try {
+                    this.writeListing(generator, resultSet);
+                    if (++written[0] % FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    // The client has gone, stop the read of the database
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            generator.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Write a listing on one line
+     * @param generator the generator of JSON
+     * @param resultSet the current row
+     * @throws IOException if the output can't be written
+     * @throws SQLException if the row can't be read
+     * @author Zarzycki Alexis
+     */
+    private void writeListing(JsonGenerator generator, ResultSet resultSet) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("idAntiquity", resultSet.getInt("id_antiquity"));
+        generator.writeStringField("titleAntiquity", resultSet.getString("title_antiquity"));
+        generator.writeStringField("descriptionAntiquity", resultSet.getString("description_antiquity"));
+        generator.writeFieldName("priceAntiquity");
+        BigDecimal price = resultSet.getBigDecimal("price_antiquity");
+        if (price == null) generator.writeNull(); else generator.writeNumber(price);
+        generator.writeStringField("mailSeller", resultSet.getString("mail_seller"));
+        generator.writeArrayFieldStart("photos");
+        Array photos = resultSet.getArray("photos");
+        if (photos != null) {
+            for (Object photo : (Object[]) photos.getArray()) {
+                generator.writeString((String) photo);
+            }
+            photos.free();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,209 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.ListingFilter;
+import be.anticair.anticairapi.Class.ListingFilterResult;
+import be.anticair.anticairapi.Class.ListingSummary;
+import be.anticair.anticairapi.Class.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static be.anticair.anticairapi.enumeration.AntiquityState.ACCEPTED;
+import static be.anticair.anticairapi.enumeration.AntiquityState.SOLD;
+
+/**
+ * Service to filter the public listings, with the facets (number of listings by price range and by state)
+ *
+ * @author Zarzycki Alexis
+ * @see ListingSpecifications
+ */
+@Service
+public class ListingFilterService {
+
+    /**
+     * The states that can be filtered by everyone
+     */
+    private static final List<Integer> PUBLIC_STATES = List.of(ACCEPTED.getState(), SOLD.getState());
+
+    private final ListingRepository listingRepository;
+    private final ListingWithPhotosAssembler listingWithPhotosAssembler;
+    private final EntityManager entityManager;
+
+    /**
+     * The upper bounds of the ranges of price, in ascending order
+     */
+    private final List<BigDecimal> priceBounds;
+
+    @Value("${listing.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${listing.page.max-size:100}")
+    private int maxPageSize;
+
+    /**
+     * Constructor
+     * @param listingRepository the repository of the listings
+     * @param listingWithPhotosAssembler the assembler of the listings with their photos
+     * @param entityManager the entity manager, for the queries of the facets
+     * @param priceBounds the upper bounds of the ranges of price
+     * @author Zarzycki Alexis
+     */
+    public ListingFilterService(ListingRepository listingRepository, ListingWithPhotosAssembler listingWithPhotosAssembler,
+                                EntityManager entityManager,
+                                @Value("${listing.filter.price-buckets:50,100,250,500,1000}") List<BigDecimal> priceBounds) {
+        this.listingRepository = listingRepository;
+        this.listingWithPhotosAssembler = listingWithPhotosAssembler;
+        this.entityManager = entityManager;
+        this.priceBounds = priceBounds.stream().sorted().toList();
+    }
+
+    /**
+     * Filter the public listings (displayed, accepted or sold)
+     *
+     * @param filter the criteria of the filter
+     * @return the page of the listings matching, with the facets
+     * @throws IllegalArgumentException if a criterion is not valid
+     * @author Zarzycki Alexis
+     */
+    @Transactional(readOnly = true)
+    public ListingFilterResult filter(ListingFilter filter) {
+        int page = filter.getPage() == null ? 0 : filter.getPage();
+        if (page < 0) {
+            throw new IllegalArgumentException("The page must be positive");
+        }
+        int size = filter.getSize() == null ? defaultPageSize : filter.getSize();
+        if (size < 1) {
+            throw new IllegalArgumentException("The size of the page must be positive");
+        }
+        size = Math.min(size, maxPageSize);
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("The minimum price is greater than the maximum price");
+        }
+        List<Integer> states = List.of(filter.getState() == null ? ACCEPTED.getState() : filter.getState());
+        if (!PUBLIC_STATES.containsAll(states)) {
+            throw new IllegalArgumentException("The state can't be filtered");
+        }
+
+        // The criteria shared by the listings and the facets
+        Specification<Listing> common = Specification.allOf(
+                ListingSpecifications.isDisplayed(),
+                ListingSpecifications.hasSeller(filter.getMailSeller()),
+                ListingSpecifications.textContains(filter.getText()));
+        Specification<Listing> price = ListingSpecifications.priceBetween(filter.getMinPrice(), filter.getMaxPrice());
+        Specification<Listing> state = ListingSpecifications.hasStateIn(states);
+
+        Page<Listing> listings = listingRepository.findAll(common.and(price).and(state),
+                PageRequest.of(page, size, this.resolveSort(filter.getSort())));
+        List<ListingSummary> summaries = listings.getContent().stream().map(ListingSummary::of).toList();
+
+        return new ListingFilterResult(
+                listingWithPhotosAssembler.toDtos(summaries),
+                page,
+                size,
+                listings.getTotalElements(),
+                this.countByPriceBucket(common.and(state)),
+                this.countByState(common.and(price).and(ListingSpecifications.hasStateIn(PUBLIC_STATES))));
+    }
+
+    /**
+     * Get the order of the listings
+     * @param sort the order asked, null for the default one
+     * @return the order
+     * @throws IllegalArgumentException if the order is not known
+     * @author Zarzycki Alexis
+     */
+    private Sort resolveSort(String sort) {
+        Sort byId = Sort.by(Sort.Direction.ASC, "idAntiquity");
+        if (sort == null || sort.isEmpty()) return byId;
+        return switch (sort) {
+            case "price_asc" -> Sort.by(Sort.Direction.ASC, "priceAntiquity").and(byId);
+            case "price_desc" -> Sort.by(Sort.Direction.DESC, "priceAntiquity").and(byId);
+            case "newest" -> Sort.by(Sort.Direction.DESC, "idAntiquity");
+            case "oldest" -> byId;
+            default -> throw new IllegalArgumentException("Unknown sort: " + sort);
+        };
+    }
+
+    /**
+     * Count the listings in each range of price, in one query
+     * @param specification the criteria of the listings
+     * @return the number of listings by range of price, in ascending order
+     * @author Zarzycki Alexis
+     */
+    private Map<String, Long> countByPriceBucket(Specification<Listing> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Listing> root = query.from(Listing.class);
+        Expression<Money> price = root.get("priceAntiquity");
+
+        List<String> labels = new ArrayList<>();
+        List<Selection<?>> sums = new ArrayList<>();
+        BigDecimal lower = null;
+        for (int i = 0; i <= priceBounds.size(); i++) {
+            BigDecimal upper = i < priceBounds.size() ? priceBounds.get(i) : null;
+            Predicate inBucket = cb.and(
+                    lower == null ? cb.conjunction() : cb.greaterThanOrEqualTo(price, Money.of(lower)),
+                    upper == null ? cb.conjunction() : cb.lessThan(price, Money.of(upper)));
+            sums.add(cb.sum(cb.<Long>selectCase().when(inBucket, 1L).otherwise(0L)));
+            labels.add(this.formatPrice(lower == null ? BigDecimal.ZERO : lower) + (upper == null ? "+" : "-" + this.formatPrice(upper)));
+            lower = upper;
+        }
+        query.multiselect(sums);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) query.where(predicate);
+
+        Tuple counts = entityManager.createQuery(query).getSingleResult();
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < labels.size(); i++) {
+            Number count = (Number) counts.get(i);
+            buckets.put(labels.get(i), count == null ? 0L : count.longValue());
+        }
+        return buckets;
+    }
+
+    /**
+     * Count the listings in each public state, in one query
+     * @param specification the criteria of the listings
+     * @return the number of listings by state
+     * @author Zarzycki Alexis
+     */
+    private Map<Integer, Long> countByState(Specification<Listing> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Listing> root = query.from(Listing.class);
+        query.multiselect(root.get("state"), cb.count(root));
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) query.where(predicate);
+        query.groupBy(root.get("state"));
+
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (Integer state : PUBLIC_STATES) {
+            counts.put(state, 0L);
+        }
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            counts.put(row.get(0, Integer.class), row.get(1, Long.class));
+        }
+        return counts;
+    }
+
+    /**
+     * Format a bound of a range of price, without useless decimals
+     * @param price the price
+     * @return the price formatted
+     * @author Zarzycki Alexis
+     */
+    private String formatPrice(BigDecimal price) {
+        return price.stripTrailingZeros().toPlainString();
+    }
+}
@@ -1,23 +1,40 @@
 package be.anticair.anticairapi.keycloak.service;
 
+import be.anticair.anticairapi.Class.Commission;
 import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.ListingSummary;
+import be.anticair.anticairapi.Class.Money;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
- * Repository for the listing
+ * Repository for the listing.
+ * The queries declared here are read-only, the persistence context doesn't keep a snapshot of the entities read,
+ * except the conditional updates of the state, which run in their own read-write transaction.
  */
-public interface ListingRepository extends JpaRepository<Listing, Long> {
+@Transactional(readOnly = true)
+public interface ListingRepository extends JpaRepository<Listing, Long>, JpaSpecificationExecutor<Listing> {
+    /**
+     * Select clause building a {@link ListingSummary} from the antiquity {@code a}
+     */
+    String SELECT_SUMMARY = "SELECT new be.anticair.anticairapi.Class.ListingSummary(a.idAntiquity, a.priceAntiquity, " +
+            "a.descriptionAntiquity, a.titleAntiquity, a.mailAntiquarian, a.state, a.isDisplay, a.mailSeller, a.version) ";
+
     /**
      * Declaration to get all the antiquity (not checked or ) that an antiquarian is the checker
      * @param email the email of the antiquarian
      * @return a list of all the antiquity
      * @author Verly Noah
      */
-    @Query("SELECT a FROM Listing a WHERE a.mailAntiquarian = :email AND a.state = 0 OR a.state =2")
+    @Query("SELECT a FROM Listing a WHERE a.mailAntiquarian = :email AND (a.state = 0 OR a.state = 2)")
     List<Listing> getAllAntiquityNotCheckedFromAnAntiquarian(@Param("email") String email);
 
 
@@ -39,6 +56,142 @@ public interface ListingRepository extends JpaRepository<Listing, Long> {
     @Query("SELECT a FROM Listing a WHERE a.state = 1")
     List<Listing> getAllAntiquityChecked();
 
+    /**
+     * Declaration to get the view of all the antiquity (checked), without loading the entities
+     *
+     * @return a list of the view of all the antiquity checked (state = 1), ordered by id
+     * @author Zarzycki Alexis
+     */
+    @Query(SELECT_SUMMARY + "FROM Listing a WHERE a.state = 1 ORDER BY a.idAntiquity ASC")
+    List<ListingSummary> getAllAntiquityCheckedSummaries();
+
+    /**
+     * Declaration to get the view of several antiquities, without loading the entities
+     *
+     * @param ids the ids of the antiquities
+     * @return a list of the view of the antiquities found, in no particular order
+     * @author Zarzycki Alexis
+     */
+    @Query(SELECT_SUMMARY + "FROM Listing a WHERE a.idAntiquity IN :ids")
+    List<ListingSummary> findSummariesByIdAntiquityIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Declaration to get a page of the view of the antiquity (checked), ordered by id
+     *
+     * @param afterId the id of the last antiquity of the previous page, 0 for the first page
+     * @param pageable the size of the page (the page number is ignored, the position is given by afterId)
+     * @return a list of the view of the antiquity checked (state = 1) with an id greater than afterId
+     * @author Zarzycki Alexis
+     */
+    @Query(SELECT_SUMMARY + "FROM Listing a WHERE a.state = 1 AND a.idAntiquity > :afterId ORDER BY a.idAntiquity ASC")
+    List<ListingSummary> getAntiquityCheckedSummariesAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Declaration to get the view of the antiquity of an antiquarian in some states, without loading the entities
+     *
+     * @param states the states wanted
+     * @param mailAntiquarian the email of the antiquarian
+     * @return a list of the view of the antiquity matching, ordered by id
+     * @author Zarzycki Alexis
+     * @see #findByStateInAndMailAntiquarian(List, String)
+     */
+    @Query(SELECT_SUMMARY + "FROM Listing a WHERE a.state IN :states AND a.mailAntiquarian = :mailAntiquarian ORDER BY a.idAntiquity ASC")
+    List<ListingSummary> getSummariesByStateInAndMailAntiquarian(@Param("states") List<Integer> states, @Param("mailAntiquarian") String mailAntiquarian);
+
+    /**
+     * Declaration to get the view of the antiquity displayed of a seller, without loading the entities
+     *
+     * @param email the email of the seller
+     * @return a list of the view of the antiquity displayed, ordered by id
+     * @author Zarzycki Alexis
+     * @see #getAllAntiquityDisplayByMailSeller(String)
+     */
+    @Query(SELECT_SUMMARY + "FROM Listing a WHERE a.mailSeller = :email AND a.isDisplay = true ORDER BY a.idAntiquity ASC")
+    List<ListingSummary> getAllAntiquityDisplaySummariesByMailSeller(@Param("email") String email);
+
+    /**
+     * Declaration to search in the title and the description of the antiquity (checked)
+     *
+     * <p>The query uses the generated column search_vector and its GIN index
+     * (see db/migration/V2__listing_search_vector.sql), the results are ordered by relevance.</p>
+     *
+     * @param query the text searched, with the syntax of a web search engine (quotes, or, -)
+     * @param limit the maximum number of antiquity returned
+     * @param offset the number of antiquity to skip
+     * @return a list of the antiquity checked (state = 1) matching the search, the most relevant first
+     * @author Zarzycki Alexis
+     */
+    @Query(value = "SELECT a.* FROM antiquity a, websearch_to_tsquery('simple', :query) q " +
+            "WHERE a.state = 1 AND a.search_vector @@ q " +
+            "ORDER BY ts_rank(a.search_vector, q) DESC, a.id_antiquity ASC " +
+            "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Listing> searchAntiquityChecked(@Param("query") String query, @Param("limit") int limit, @Param("offset") long offset);
+
+    /**
+     * Change the state of an antiquity only if its current state is one of the expected states.
+     *
+     * <p>The check and the change are done by one UPDATE, so two concurrent transitions of the same antiquity
+     * can't both succeed.</p>
+     *
+     * @param id the id of the antiquity
+     * @param expectedStates the states from which the transition is allowed
+     * @param newState the new state
+     * @return the number of antiquities modified, 0 if the antiquity doesn't exist or isn't in an expected state
+     * @author Zarzycki Alexis
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Listing a SET a.state = :newState, a.version = a.version + 1 WHERE a.idAntiquity = :id AND a.state IN :expectedStates")
+    int compareAndSetState(@Param("id") Integer id, @Param("expectedStates") Collection<Integer> expectedStates,
+                           @Param("newState") Integer newState);
+
+    /**
+     * Check if an antiquity is in a state
+     *
+     * @param idAntiquity the id of the antiquity
+     * @param state the state
+     * @return true if the antiquity exists and is in the state
+     * @author Zarzycki Alexis
+     */
+    boolean existsByIdAntiquityAndState(Integer idAntiquity, Integer state);
+
+    /**
+     * Change the state and the price of an antiquity only if it hasn't been modified since it was read
+     * (same state and same version), for example to apply the commission calculated from the price read.
+     *
+     * @param id the id of the antiquity
+     * @param expectedState the state read before the transition
+     * @param expectedVersion the version read before the transition
+     * @param newState the new state
+     * @param newPrice the new price
+     * @return the number of antiquities modified, 0 if the antiquity doesn't exist or has been modified
+     * @author Zarzycki Alexis
+     * @see Commission#apply(Money)
+     * @see AntiquityStateMachine
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Listing a SET a.state = :newState, a.version = a.version + 1, a.priceAntiquity = :newPrice " +
+            "WHERE a.idAntiquity = :id AND a.state = :expectedState AND a.version = :expectedVersion")
+    int compareAndSetStateAndPrice(@Param("id") Integer id, @Param("expectedState") Integer expectedState,
+                                   @Param("expectedVersion") long expectedVersion, @Param("newState") Integer newState,
+                                   @Param("newPrice") Money newPrice);
+
+    /**
+     * Finds the listings changed after a position of the change feed, in the order of the changes.
+     *
+     * <p>The position is maintained by the database at the commit (see V4__listing_change_seq.sql), so it isn't
+     * mapped in {@link Listing}: the copies of the second-level cache would keep an old position.</p>
+     *
+     * @param changeSeq the position of the last change already read
+     * @param limit the number of listings to read
+     * @return the id and the position of each listing changed after the position
+     * @author Zarzycki Alexis
+     */
+    @Query(value = "SELECT id_antiquity, change_seq FROM antiquity WHERE change_seq > :changeSeq " +
+            "ORDER BY change_seq ASC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findChangesAfter(@Param("changeSeq") long changeSeq, @Param("limit") int limit);
+
     /**
      * Finds antiquities where the state matches one of the provided states (0 or 2)
      * and the seller's email matches the specified email.
@@ -0,0 +1,69 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.Listing;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finish a bulk review once it is committed: the antiquities modified are removed from the second-level cache
+ * (the review updates them without Hibernate) and the mails are sent together, in the background.
+ *
+ * <p>The mails are sent one after the other on a virtual thread, so the antiquarian doesn't wait for the mail server.
+ * A mail that can't be sent doesn't stop the others.</p>
+ * @author Zarzycki Alexis
+ * @see ListingReviewService
+ */
+@Component
+public class ListingReviewMailer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingReviewMailer.class);
+
+    private static final String SENDER = "info@anticairapp.sixela.be";
+
+    private final EmailService emailService;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ListingReviewMailer(EmailService emailService, EntityManagerFactory entityManagerFactory) {
+        this.emailService = emailService;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Evict the antiquities reviewed from the cache and enqueue the mails, after the commit of the review
+     * @param event the antiquities reviewed and the mails to send
+     * @author Zarzycki Alexis
+     */
+    @TransactionalEventListener
+    public void onListingReviewed(ListingReviewedEvent event) {
+        event.getIdAntiquities().forEach(id -> entityManagerFactory.getCache().evict(Listing.class, id));
+        if (event.getMails().isEmpty()) return;
+        senders.execute(() -> {
+            for (ListingReviewedEvent.PendingMail mail : event.getMails()) {
+                try {
+                    emailService.sendHtmlEmail(mail.getReceiver(), SENDER, mail.getTypeOfMail(), mail.getOtherInformation());
+                } catch (Exception e) {
+                    logger.warn("Error while sending the mail of the review to {}", mail.getReceiver(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the sending of the mails when the application stops
+     * @author Zarzycki Alexis
+     */
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+}
@@ -0,0 +1,206 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.Commission;
+import be.anticair.anticairapi.Class.ListingSummary;
+import be.anticair.anticairapi.Class.Money;
+import be.anticair.anticairapi.Class.ReviewDecision;
+import be.anticair.anticairapi.Class.ReviewResult;
+import be.anticair.anticairapi.enumeration.AntiquityAction;
+import be.anticair.anticairapi.enumeration.AntiquityState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.*;
+
+/**
+ * Apply the decisions of an antiquarian on several antiquities of his review queue at once.
+ *
+ * <p>The antiquities are read with one query, the transitions are checked with the {@link AntiquityStateMachine},
+ * then all the conditional updates are sent in one JDBC batch, in one transaction. Like the accept and the reject
+ * of one antiquity, an update is applied only if the antiquity hasn't changed since the read (same state and version),
+ * and the count of each update of the batch gives the result of its decision.
+ * The mails are sent together once the transaction is committed.</p>
+ * @author Zarzycki Alexis
+ * @see ListingReviewMailer
+ */
+@Service
+public class ListingReviewService {
+
+    /**
+     * Conditional update of the state and the price (with the commission if it is applied) of an antiquity
+     */
+    static final String COMPARE_AND_SET_STATE =
+            "UPDATE antiquity SET state = ?, version = version + 1, price_antiquity = ? " +
+            "WHERE id_antiquity = ? AND state = ? AND version = ?";
+
+    private final ListingRepository listingRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int maxBatchSize;
+
+    public ListingReviewService(ListingRepository listingRepository, DataSource dataSource, ApplicationEventPublisher eventPublisher,
+                                @Value("${listing.review.max-batch-size:200}") int maxBatchSize) {
+        this.listingRepository = listingRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.eventPublisher = eventPublisher;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Apply a list of decisions (accept or reject) in one transaction.
+     *
+     * <p>A decision which can't be applied (antiquity not found, state not allowing the decision, review missing,
+     * antiquity modified by someone else) doesn't stop the others, its result explains why.</p>
+     *
+     * @param decisions the decisions, at most listing.review.max-batch-size
+     * @return the result of each decision, in the order of the decisions
+     * @throws IllegalArgumentException if there are no decisions or too many
+     * @author Zarzycki Alexis
+     */
+    @Transactional
+    public List<ReviewResult> review(List<ReviewDecision> decisions) {
+        if (decisions == null || decisions.isEmpty()) throw new IllegalArgumentException("No decision given");
+        if (decisions.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Too many decisions, the maximum is " + maxBatchSize);
+        }
+
+        ReviewResult[] results = new ReviewResult[decisions.size()];
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (int i = 0; i < decisions.size(); i++) {
+            ReviewDecision decision = decisions.get(i);
+            String error = validate(decision);
+            if (error == null && !ids.add(decision.getId())) error = "Duplicate decision for this antiquity";
+            if (error != null) results[i] = ReviewResult.failed(decision == null ? null : decision.getId(), error);
+        }
+
+        // Read all the antiquities with one query
+        Map<Integer, ListingSummary> antiquities = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (ListingSummary summary : listingRepository.findSummariesByIdAntiquityIn(ids)) {
+                antiquities.put(summary.getIdAntiquity(), summary);
+            }
+        }
+
+        List<PlannedUpdate> planned = new ArrayList<>();
+        for (int i = 0; i < decisions.size(); i++) {
+            if (results[i] != null) continue;
+            ReviewDecision decision = decisions.get(i);
+            ListingSummary antiquity = antiquities.get(decision.getId());
+            if (antiquity == null) {
+                results[i] = ReviewResult.failed(decision.getId(), "Antiquity not found");
+                continue;
+            }
+            AntiquityTransition transition = AntiquityStateMachine.transition(antiquity.getState(), decision.getAction());
+            if (transition == null) {
+                results[i] = ReviewResult.failed(decision.getId(), "The antiquity can't be reviewed from its state");
+                continue;
+            }
+            planned.add(new PlannedUpdate(i, decision, antiquity, transition));
+        }
+
+        // Send all the conditional updates in one batch
+        int[][] counts = planned.isEmpty() ? new int[][] {{}} : jdbcTemplate.batchUpdate(COMPARE_AND_SET_STATE, planned, planned.size(), (statement, update) -> {
+            statement.setInt(1, update.transition.getTarget().getState());
+            statement.setBigDecimal(2, update.newPrice == null ? null : update.newPrice.toBigDecimal());
+            statement.setInt(3, update.antiquity.getIdAntiquity());
+            statement.setInt(4, update.antiquity.getState());
+            statement.setLong(5, update.antiquity.getVersion());
+        });
+
+        List<Integer> reviewed = new ArrayList<>();
+        List<ListingReviewedEvent.PendingMail> mails = new ArrayList<>();
+        for (int i = 0; i < planned.size(); i++) {
+            PlannedUpdate update = planned.get(i);
+            // Only a count of 1 is a success, a driver not giving the count is considered as a failure
+            if (counts[0][i] != 1) {
+                results[update.index] = ReviewResult.failed(update.antiquity.getIdAntiquity(), "The antiquity has been modified since the read");
+                continue;
+            }
+            Integer id = update.antiquity.getIdAntiquity();
+            results[update.index] = ReviewResult.applied(id, update.transition.getTarget().getState());
+            reviewed.add(id);
+            eventPublisher.publishEvent(new ListingChangedEvent(id));
+            if (update.transition.getTarget() == AntiquityState.ACCEPTED) {
+                Double price = update.newPrice == null ? null : update.newPrice.toDouble();
+                eventPublisher.publishEvent(new ListingStreamEvent(ListingStreamEvent.Type.ACCEPTED, id, update.antiquity.getTitleAntiquity(), price));
+            }
+            if (update.transition.getMail() != null) {
+                mails.add(new ListingReviewedEvent.PendingMail(update.antiquity.getMailSeller(), update.transition.getMail(), mailInformation(update)));
+            }
+        }
+        if (!reviewed.isEmpty()) eventPublisher.publishEvent(new ListingReviewedEvent(reviewed, mails));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Check that a decision is complete
+     * @param decision the decision
+     * @return the error, null if the decision is complete
+     * @author Zarzycki Alexis
+     */
+    private String validate(ReviewDecision decision) {
+        if (decision == null || decision.getId() == null) return "The id of the antiquity is missing";
+        if (decision.getAction() != AntiquityAction.ACCEPT && decision.getAction() != AntiquityAction.REJECT) {
+            return "The action must be ACCEPT or REJECT";
+        }
+        if (decision.getAction() == AntiquityAction.REJECT
+                && (isBlank(decision.getNoteTitle()) || isBlank(decision.getNoteDescription())
+                || isBlank(decision.getNotePrice()) || isBlank(decision.getNotePhoto()))) {
+            return "The review is missing";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * Build the information of the mail of a decision, like the accept and the reject of one antiquity
+     * @param update the decision applied
+     * @return the information put in the mail
+     * @author Zarzycki Alexis
+     */
+    private Map<String, String> mailInformation(PlannedUpdate update) {
+        Map<String, String> otherInformation = new HashMap<>();
+        otherInformation.put("id", update.antiquity.getIdAntiquity().toString());
+        otherInformation.put("title", update.antiquity.getTitleAntiquity());
+        otherInformation.put("description", update.antiquity.getDescriptionAntiquity());
+        otherInformation.put("price", Money.toString(update.antiquity.getPrice()));
+        if (update.decision.getAction() == AntiquityAction.REJECT) {
+            otherInformation.put("note_title", update.decision.getNoteTitle());
+            otherInformation.put("note_description", update.decision.getNoteDescription());
+            otherInformation.put("note_price", update.decision.getNotePrice());
+            otherInformation.put("note_photo", update.decision.getNotePhoto());
+        }
+        return otherInformation;
+    }
+
+    /**
+     * A decision allowed by the state machine, waiting for its conditional update
+     */
+    private static final class PlannedUpdate {
+
+        private final int index;
+        private final ReviewDecision decision;
+        private final ListingSummary antiquity;
+        private final AntiquityTransition transition;
+        private final Money newPrice;
+
+        private PlannedUpdate(int index, ReviewDecision decision, ListingSummary antiquity, AntiquityTransition transition) {
+            this.index = index;
+            this.decision = decision;
+            this.antiquity = antiquity;
+            this.transition = transition;
+            Money price = antiquity.getPrice();
+            this.newPrice = transition.isApplyCommission() && price != null ? Commission.apply(price) : price;
+        }
+    }
+}
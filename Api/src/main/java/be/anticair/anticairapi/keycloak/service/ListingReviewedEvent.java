@@ -0,0 +1,51 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.enumeration.TypeOfMail;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Event published by the bulk review, with the antiquities modified and the mails to send once the review is committed
+ * @author Zarzycki Alexis
+ * @see ListingReviewMailer
+ */
+@Getter
+@AllArgsConstructor
+public class ListingReviewedEvent {
+
+    /**
+     * The ids of the antiquities modified by the review
+     */
+    private final List<Integer> idAntiquities;
+
+    /**
+     * The mails to send to the sellers
+     */
+    private final List<PendingMail> mails;
+
+    /**
+     * A mail waiting for the commit of the review
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PendingMail {
+
+        /**
+         * The email of the receiver
+         */
+        private final String receiver;
+
+        /**
+         * The kind of mail
+         */
+        private final TypeOfMail typeOfMail;
+
+        /**
+         * The information put in the mail
+         */
+        private final Map<String, String> otherInformation;
+    }
+}
@@ -1,20 +1,35 @@
 package be.anticair.anticairapi.keycloak.service;
 
+import be.anticair.anticairapi.Class.Commission;
+import be.anticair.anticairapi.Class.ListingChanges;
+import be.anticair.anticairapi.Class.ListingCursor;
+import be.anticair.anticairapi.Class.ListingPage;
+import be.anticair.anticairapi.Class.ListingSummary;
 import be.anticair.anticairapi.Class.ListingWithPhotosDto;
+import be.anticair.anticairapi.Class.Money;
 import be.anticair.anticairapi.Class.PhotoAntiquity;
 import be.anticair.anticairapi.enumeration.TypeOfMail;
 import jakarta.mail.MessagingException;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.enumeration.AntiquityAction;
 import be.anticair.anticairapi.enumeration.AntiquityState;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static be.anticair.anticairapi.enumeration.AntiquityState.*;
 
@@ -43,8 +58,54 @@ public class ListingService {
     @Autowired
     private PhotoAntiquityService photoAntiquityService;
 
+    @Autowired
+    private PhotoIngestionService photoIngestionService;
+
+    @Autowired
+    private ListingWithPhotosAssembler listingWithPhotosAssembler;
+
+    @Autowired
+    private ListingCatalogCache listingCatalogCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private AntiquityState antiquityState;
 
+    /**
+     * Maximum number of attempts of an idempotent update when the listing is modified concurrently
+     */
+    @Value("${listing.update.max-attempts:3}")
+    private int maxUpdateAttempts;
+
+    /**
+     * Size of a page of listings when the client doesn't give one
+     */
+    @Value("${listing.page.default-size:20}")
+    private int defaultPageSize;
+
+    /**
+     * Maximum size of a page of listings
+     */
+    @Value("${listing.page.max-size:100}")
+    private int maxPageSize;
+
+    /**
+     * Maximum length of a search
+     */
+    @Value("${listing.search.max-query-length:200}")
+    private int maxSearchLength;
+
+    /*
+     * The methods giving entities, which may be modified then saved, or reading a listing before modifying it run in a
+     * read-write transaction, so they read the primary (see ReadReplicaRoutingDataSource): the replica may not have
+     * the last modification yet. Only the views (summaries, pages, search) are read on the replica.
+     */
+
+    @Transactional
     public Optional<Listing> getAntiquityById(Long id) {
         return ListingRepository.findById(id);
     }
@@ -54,12 +115,13 @@ public class ListingService {
      *
      * @param email The email of the user creating the listing.
      * @param newListing The listing to create.
-     * @param photos The photos to associate with the listing.
+     * @param photos The photos to associate with the listing, written before the return but saved in the database
+     *               after it (see {@link PhotoIngestionService#getStatus(Integer)}).
      * @return The created listing.
      * @author Blommaert Youry
      */
     public Listing createListing(String email, Listing newListing, List<MultipartFile> photos) throws MessagingException, IOException {
-        if(newListing.getPriceAntiquity() < 0) {
+        if(newListing.getPrice() != null && newListing.getPrice().isNegative()) {
             throw new IllegalArgumentException("Price is negative");
         }
         List<UserRepresentation> users = userService.getUsersByEmail(email);
@@ -72,7 +134,7 @@ public class ListingService {
         UserRepresentation user = userService.getUsersByEmail(email).get(0);
 
         // Verify that the listing has a price, description, and title
-        if (newListing.getPriceAntiquity() == 0 ||
+        if (newListing.getPrice() == null || Money.ZERO.equals(newListing.getPrice()) ||
                 newListing.getDescriptionAntiquity() == null ||
                 newListing.getTitleAntiquity() == null) {
             throw new NullPointerException("Price, description, and title are required");
@@ -102,16 +164,14 @@ public class ListingService {
         }catch (Exception e) {
             throw new RuntimeException("Error sending email");
         }
-        // Save the photos
+        // Save the photos: the files are written in parallel, the photos are saved in the database after the response
         if (photos != null && !photos.isEmpty()) {
-            for (MultipartFile photo : photos) {
-                try {
-                    // Use the PhotoAntiquityService to save the photo
-                    PhotoAntiquity photoAntiquity = photoAntiquityService.createPhotoAntiquity(savedListing, photo);
-                } catch (IOException e) {
-                    // Make sure to delete the listing if the photo fails to save
-                    throw new RuntimeException("Failed to save photo", e);
-                }
+            try {
+                photoIngestionService.ingest(savedListing, photos);
+            } catch (IOException e) {
+                // The listing is kept without photos, they can be sent again with the update of the photos. The photos
+                // which fail after the response are given by the status of the ingestion (PhotoIngestionService)
+                throw new RuntimeException("Failed to save photo", e);
             }
         }
 
@@ -123,6 +183,7 @@ public class ListingService {
      * @return The list of all the listings accepted.
      * @Author Blommaert Youry
      */
+    @Transactional
     public List<Listing> getAllListingsAccepted() {
         List<Listing> listings = new ArrayList<>();
         listings = ListingRepository.getAllAntiquityChecked();
@@ -134,11 +195,175 @@ public class ListingService {
         return listings;
     }
 
+    /**
+     * Get all the listing accepted with their photos.
+     *
+     * <p>The catalog is served from the {@link ListingCatalogCache} when possible,
+     * the database is only read on a cache miss, without loading the entities.</p>
+     *
+     * @return The list of all the listings accepted with their photos.
+     * @throws RuntimeException if there isn't any listing accepted
+     * @author Zarzycki Alexis
+     */
+    @Transactional
+    public List<ListingWithPhotosDto> getAllListingsAcceptedWithPhotos() {
+        List<ListingWithPhotosDto> catalog = listingCatalogCache.getCatalog();
+        if (catalog != null) return catalog;
+
+        long generation = listingCatalogCache.generation();
+        // The catalog is kept until the next modification, so it is read on the primary (read-write transaction):
+        // a late replica would give a catalog older than the generation
+        List<ListingSummary> listings = ListingRepository.getAllAntiquityCheckedSummaries();
+        if (listings.isEmpty()) {
+            throw new RuntimeException("No listings found");
+        }
+        catalog = listingWithPhotosAssembler.toDtos(listings);
+        listingCatalogCache.putCatalog(generation, catalog);
+        return catalog;
+    }
+
+    /**
+     * Get a page of the listings accepted in the database.
+     *
+     * <p>The pagination is done with a keyset on the id of the antiquity, so the cost of a page
+     * doesn't depend on its position in the catalog. The cursor returned with a page must be given
+     * to get the next one.</p>
+     *
+     * @param cursor the opaque cursor of the page, null or empty for the first page
+     * @param size the number of listings wanted, the default size is used if null
+     * @return the page of the listings accepted, with the cursor of the next page (null if it is the last one)
+     * @throws IllegalArgumentException if the cursor or the size is not valid
+     * @author Zarzycki Alexis
+     */
+    @Transactional(readOnly = true)
+    public ListingPage<ListingSummary> getListingsAcceptedPage(String cursor, Integer size) {
+        int pageSize = this.resolvePageSize(size);
+        long afterId = ListingCursor.decode(cursor);
+        if (afterId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        // Read one more listing to know if there is a next page
+        List<ListingSummary> listings = ListingRepository.getAntiquityCheckedSummariesAfter((int) afterId, PageRequest.of(0, pageSize + 1));
+
+        String nextCursor = null;
+        if (listings.size() > pageSize) {
+            listings = listings.subList(0, pageSize);
+            nextCursor = ListingCursor.encode(listings.getLast().getIdAntiquity());
+        }
+        return new ListingPage<>(listings, nextCursor);
+    }
+
+    /**
+     * Search in the title and the description of the listings accepted.
+     *
+     * <p>The results are ordered by relevance, the title counting more than the description.
+     * The cursor returned with a page must be given to get the next one.</p>
+     *
+     * @param query the text searched
+     * @param cursor the opaque cursor of the page, null or empty for the first page
+     * @param size the number of listings wanted, the default size is used if null
+     * @return the page of the listings accepted matching the search, with the cursor of the next page (null if it is the last one)
+     * @throws IllegalArgumentException if the search, the cursor or the size is not valid
+     * @author Zarzycki Alexis
+     */
+    @Transactional(readOnly = true)
+    public ListingPage<ListingSummary> searchListingsAccepted(String query, String cursor, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("The search is empty");
+        }
+        if (query.length() > maxSearchLength) {
+            throw new IllegalArgumentException("The search is too long");
+        }
+        int pageSize = this.resolvePageSize(size);
+        long offset = ListingCursor.decodeOffset(cursor);
+
+        // Read one more listing to know if there is a next page
+        List<ListingSummary> listings = ListingRepository.searchAntiquityChecked(query.strip(), pageSize + 1, offset)
+                .stream()
+                .map(ListingSummary::of)
+                .toList();
+
+        String nextCursor = null;
+        if (listings.size() > pageSize) {
+            listings = listings.subList(0, pageSize);
+            nextCursor = ListingCursor.encodeOffset(offset + pageSize);
+        }
+        return new ListingPage<>(listings, nextCursor);
+    }
+
+    /**
+     * Get the changes of the catalog of the accepted listings since a position of the change feed.
+     *
+     * <p>Every write on a listing or on its photos gives it a new position (see V4__listing_change_seq.sql),
+     * so a client only reads the listings changed since its last sync. The accepted listings are returned as
+     * upserts, the others as tombstones (their ids) to remove from the copy of the client.</p>
+     *
+     * @param since the position of the last change read by the client, 0 to read the whole catalog
+     * @param limit the number of changes wanted, the default size of a page is used if null
+     * @return the changes, with the position to give for the next ones
+     * @throws IllegalArgumentException if the position or the limit is not valid
+     * @author Zarzycki Alexis
+     */
+    @Transactional(readOnly = true)
+    public ListingChanges getListingChangesSince(Long since, Integer limit) {
+        long position = since == null ? 0L : since;
+        if (position < 0) {
+            throw new IllegalArgumentException("The position must be positive");
+        }
+        int pageSize = this.resolvePageSize(limit);
+
+        // Read one more change to know if there are more
+        List<Object[]> changes = ListingRepository.findChangesAfter(position, pageSize + 1);
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (Object[] change : changes) {
+            ids.add(((Number) change[0]).intValue());
+        }
+        Map<Integer, ListingSummary> listings = new HashMap<>();
+        for (ListingSummary listing : ListingRepository.findSummariesByIdAntiquityIn(ids)) {
+            listings.put(listing.getIdAntiquity(), listing);
+        }
+
+        List<ListingSummary> upserts = new ArrayList<>();
+        List<Integer> tombstones = new ArrayList<>();
+        for (Integer id : ids) {
+            ListingSummary listing = listings.get(id);
+            if (listing != null && ACCEPTED.getState().equals(listing.getState())) {
+                upserts.add(listing);
+            } else {
+                tombstones.add(id);
+            }
+        }
+        long nextSince = changes.isEmpty() ? position : ((Number) changes.getLast()[1]).longValue();
+        return new ListingChanges(listingWithPhotosAssembler.toDtos(upserts), tombstones, nextSince, hasMore);
+    }
+
+    /**
+     * Check the size of a page asked by a client
+     * @param size the size asked, can be null
+     * @return the size to use
+     * @throws IllegalArgumentException if the size is not valid
+     * @author Zarzycki Alexis
+     */
+    private int resolvePageSize(Integer size) {
+        if (size == null) return defaultPageSize;
+        if (size < 1) {
+            throw new IllegalArgumentException("The size of the page must be positive");
+        }
+        return Math.min(size, maxPageSize);
+    }
+
     /**
      * Get all the listing in the database.
      * @return The list of all the listings.
      * @Author Blommaert Youry
      */
+    @Transactional
     public List<Listing> getAllListing() {
         List<Listing> listings = new ArrayList<>();
         listings = ListingRepository.findAll();
@@ -159,29 +384,29 @@ public class ListingService {
      * @return the rejected antiquity
      * @author Verly Noah
      */
+    @Transactional
     public Listing rejectAntiquity(Map<String,String> otherInformation){
         if(otherInformation==null || otherInformation.isEmpty() || otherInformation.get("id").isEmpty() || otherInformation.get("note_title").isEmpty() || otherInformation.get("note_description").isEmpty() || otherInformation.get("note_price").isEmpty() || otherInformation.get("note_photo").isEmpty()) return null;
         //Get the antiquity
-        Optional<Listing> antiquity = getAntiquityById(Long.valueOf(otherInformation.get("id")));
-        //If empty or the state of the antiquity is different of need to be checked and accepted bu modified, return null
-        //Because there are the two only state that could be rejected
-        if(antiquity.isEmpty() || (antiquity.get().getState()!= NEED_TO_BE_CHECKED.getState() && antiquity.get().getState()!= ACCEPTED_BUT_MODIFIED.getState())){return null;}
-        //If the antiquity state is not "NEED_TO_BE_CHECKED", don't change
-        if(antiquity.get().getState()== NEED_TO_BE_CHECKED.getState()) antiquity.get().setState(REJECTED.getState());
+        Optional<Listing> antiquity = ListingRepository.findById(Long.valueOf(otherInformation.get("id")));
+        //If empty or the antiquity can't be rejected from its state (need to be checked and accepted but modified), return null
+        if(antiquity.isEmpty()) return null;
+        AntiquityTransition transition = AntiquityStateMachine.transition(antiquity.get().getState(), AntiquityAction.REJECT);
+        if(transition == null) return null;
 
         otherInformation.put("title",antiquity.get().getTitleAntiquity());
         otherInformation.put("description",antiquity.get().getDescriptionAntiquity());
-        otherInformation.put("price", antiquity.get().getPriceAntiquity().toString());
+        otherInformation.put("price", Money.toString(antiquity.get().getPrice()));
 
         otherInformation.put("note_title",otherInformation.get("note_title"));
         otherInformation.put("note_description",otherInformation.get("note_description"));
         otherInformation.put("note_price",otherInformation.get("note_price"));
         otherInformation.put("note_photo",otherInformation.get("note_photo"));
-        //Save the changes
-        antiquity = Optional.of(this.ListingRepository.save(antiquity.get()));
+        //Save the changes, only if the state hasn't changed since the read
+        if (!this.applyTransition(antiquity.get(), transition)) return null;
         try {
             //Send the mail
-            this.emailService.sendHtmlEmail(antiquity.get().getMailSeller(),"info@anticairapp.sixela.be",TypeOfMail.REJECTIONOFANTIQUITY,otherInformation);
+            this.emailService.sendHtmlEmail(antiquity.get().getMailSeller(),"info@anticairapp.sixela.be",transition.getMail(),otherInformation);
             //return the antiquity
             return antiquity.get();
         } catch (MessagingException | IOException e) {
@@ -196,25 +421,29 @@ public class ListingService {
      * @return the accepted antiquity
      * @author Verly Noah
      */
+    @Transactional
     public Listing acceptAntiquity(Map<String,String> otherInformation){
         if(otherInformation==null || otherInformation.isEmpty() || otherInformation.get("id").isEmpty() ) return null;
         //Get the antiquity
-        Optional<Listing> antiquity = getAntiquityById(Long.valueOf(otherInformation.get("id")));
-        if(antiquity.isEmpty() || (antiquity.get().getState()!= NEED_TO_BE_CHECKED.getState() && antiquity.get().getState()!= ACCEPTED_BUT_MODIFIED.getState())){return null;}
-        int initialState = antiquity.get().getState();
-        antiquity.get().setState(ACCEPTED.getState());
+        Optional<Listing> antiquity = ListingRepository.findById(Long.valueOf(otherInformation.get("id")));
+        if(antiquity.isEmpty()) return null;
+        AntiquityTransition transition = AntiquityStateMachine.transition(antiquity.get().getState(), AntiquityAction.ACCEPT);
+        if(transition == null) return null;
 
         otherInformation.put("title",antiquity.get().getTitleAntiquity());
         otherInformation.put("description",antiquity.get().getDescriptionAntiquity());
-        otherInformation.put("price", antiquity.get().getPriceAntiquity().toString());
+        otherInformation.put("price", Money.toString(antiquity.get().getPrice()));
 
-        //Save the changes
-        antiquity = Optional.of(this.ListingRepository.save(antiquity.get()));
+        //Save the changes and apply the commission if the antiquity has never been accepted, in one update
+        //done only if the state hasn't changed since the read
+        Listing accepted = antiquity.get();
+        if (!this.applyTransition(accepted, transition)) return null;
         try {
             //Send the mail
-            this.emailService.sendHtmlEmail(antiquity.get().getMailSeller(),"info@anticairapp.sixela.be",TypeOfMail.VALIDATIONOFANANTIQUITY,otherInformation);
-            //If the antiquity has never been accepted, return the antiquity with the application the commission , else just return the antiquity
-            return initialState == NEED_TO_BE_CHECKED.getState() ?  this.applyCommission(Integer.valueOf(otherInformation.get("id"))) :  antiquity.get();
+            this.emailService.sendHtmlEmail(accepted.getMailSeller(),"info@anticairapp.sixela.be",transition.getMail(),otherInformation);
+            //Return the antiquity, with the commission if it has never been accepted
+            this.publishStreamEvent(ListingStreamEvent.Type.ACCEPTED, accepted);
+            return accepted;
         } catch (MessagingException e) {
             throw new RuntimeException(e);
         } catch (IOException e) {
@@ -234,38 +463,58 @@ public class ListingService {
      * @param updatedListing the {@link Listing} object containing the new values to update the listing
      * @return the updated {@link Listing} object after saving it to the database
      * @throws RuntimeException if no listing is found with the given ID
+     * @throws OptimisticLockingFailureException if the listing is modified by someone else during the update
      *
      * @author Neve Thierry
      */
     public Listing updateListing(Long id, Listing updatedListing) throws MessagingException, IOException {
-        Listing listing = ListingRepository.getReferenceById(id);
-        int newState;
-        switch (listing.getState()) {
-            case -1 :
-                newState = NEED_TO_BE_CHECKED.getState();
-                this.emailService.sendHtmlEmail(updatedListing.getMailAntiquarian(),"info@anticairapp.sixela.be",TypeOfMail.NEWANTIQUITY,new HashMap<>());
-                break;
-            case 1 :
-                newState = ACCEPTED_BUT_MODIFIED.getState();
-                this.emailService.sendHtmlEmail(updatedListing.getMailAntiquarian(),"info@anticairapp.sixela.be",TypeOfMail.NEWANTIQUITY,new HashMap<>());
-                break;
-            case 3 :
-               return listing;
-            default :
-                newState = updatedListing.getState();
-                break;
+        return this.updateListing(id, updatedListing, null);
+    }
+
+    /**
+     * Updates the details of an existing listing, only if it hasn't been modified since the client read it.
+     *
+     * <p>The listing is read once, and its version is checked by the update: a modification made by someone
+     * else since the read (by the client, or during the update) is never overwritten.</p>
+     *
+     * <p>The new state is given by {@link AntiquityStateMachine} and the state sent by the client is ignored: a seller
+     * can't accept or sell its own antiquity by editing it, even when it still has to be checked or was accepted then
+     * modified. The antiquarian is warned only once the modification is saved, so no mail is sent for an update
+     * refused because of a concurrent modification.</p>
+     *
+     * @param id the ID of the listing to be updated
+     * @param updatedListing the {@link Listing} object containing the new values to update the listing
+     * @param expectedVersion the version of the listing read by the client, null to not check it
+     * @return the updated {@link Listing} object after saving it to the database
+     * @throws RuntimeException if no listing is found with the given ID
+     * @throws OptimisticLockingFailureException if the listing has been modified since the client read it or during the update
+     * @author Zarzycki Alexis
+     */
+    @Transactional
+    public Listing updateListing(Long id, Listing updatedListing, Long expectedVersion) throws MessagingException, IOException {
+        Listing antiquity = ListingRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Antiquity not found with id: " + id));
+        if (expectedVersion != null && expectedVersion != antiquity.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Listing.class, id);
+        }
+        // A sold antiquity can't be modified anymore
+        AntiquityTransition transition = AntiquityStateMachine.transition(antiquity.getState(), AntiquityAction.EDIT);
+        if (transition == null) return antiquity;
+        antiquity.setPrice(updatedListing.getPrice());
+        antiquity.setDescriptionAntiquity(updatedListing.getDescriptionAntiquity());
+        antiquity.setTitleAntiquity(updatedListing.getTitleAntiquity());
+        antiquity.setMailSeller(updatedListing.getMailSeller());
+        antiquity.setMailAntiquarian(updatedListing.getMailAntiquarian());
+        antiquity.setState(transition.getTarget().getState());
+        antiquity.setIsDisplay(updatedListing.getIsDisplay());
+        // Flushed now, so a concurrent modification is detected before the mail
+        Listing saved = ListingRepository.saveAndFlush(antiquity);
+        this.publishChange(saved.getIdAntiquity());
+        // Warn the antiquarian once the modification is saved, if the antiquity has to be checked again
+        if (transition.getMail() != null) {
+            this.emailService.sendHtmlEmail(updatedListing.getMailAntiquarian(),"info@anticairapp.sixela.be",transition.getMail(),new HashMap<>());
         }
-        int finalNewState = newState;
-        return ListingRepository.findById(id).map(antiquity -> {
-            antiquity.setPriceAntiquity(updatedListing.getPriceAntiquity());
-            antiquity.setDescriptionAntiquity(updatedListing.getDescriptionAntiquity());
-            antiquity.setTitleAntiquity(updatedListing.getTitleAntiquity());
-            antiquity.setMailSeller(updatedListing.getMailSeller());
-            antiquity.setMailAntiquarian(updatedListing.getMailAntiquarian());
-            antiquity.setState(finalNewState);
-            antiquity.setIsDisplay(updatedListing.getIsDisplay());
-            return ListingRepository.save(antiquity);
-        }).orElseThrow(() -> new RuntimeException("Antiquity not found with id: " + id));
+        return saved;
     }
 
 
@@ -286,8 +535,15 @@ public class ListingService {
      * @see PhotoAntiquityService#findByIdAntiquity(Integer)
      * @see ListingWithPhotosDto
      */
+    @Transactional
     public ListingWithPhotosDto getListingById(Integer id) {
-        // Get the listing
+        // The accepted listings are kept in the cache
+        ListingWithPhotosDto cached = listingCatalogCache.get(id);
+        if (cached != null) return cached;
+        long generation = listingCatalogCache.generation();
+
+        // Read on the primary (read-write transaction), the listing is kept in the cache and behind its ETag
+        // until the next modification
         Listing listing = ListingRepository.findById(Long.valueOf(id))
                 .orElseThrow(() -> new RuntimeException("Listing not found with id " + id));
 
@@ -295,7 +551,11 @@ public class ListingService {
         List<PhotoAntiquity> photos = photoAntiquityService.findByIdAntiquity(id);
 
         // create and return the objects
-        return new ListingWithPhotosDto(listing, photos);
+        ListingWithPhotosDto listingWithPhotos = new ListingWithPhotosDto(listing, photos);
+        if (listing.getState() == ACCEPTED.getState()) {
+            listingCatalogCache.put(generation, listingWithPhotos);
+        }
+        return listingWithPhotos;
     }
 
     /**
@@ -305,6 +565,7 @@ public class ListingService {
      * @return the antiquity with the commission
      * @author Verly Noah
      */
+    @Transactional
     public Listing applyCommission(Integer id){
         //Check if the id is valid
         if(id==null ||id<1) return null;
@@ -315,7 +576,9 @@ public class ListingService {
         //Applied the commission
         listing.get().applyCommission();
         //Save the change
-        return ListingRepository.save(listing.get());
+        Listing saved = ListingRepository.save(listing.get());
+        this.publishChange(saved.getIdAntiquity());
+        return saved;
     }
 
     /**
@@ -333,30 +596,55 @@ public class ListingService {
         if(userService.getUsersByEmail(emailNewAntiquarian).getFirst() == null) {return false;}
         //Check if his account is activated
         if(!this.userService.getUserStatus(emailNewAntiquarian)) return false;
-        //Change the antiquarian of the antiquity
-        antiquity.setMailAntiquarian(emailNewAntiquarian);
-        //Save
-        ListingRepository.save(antiquity);
+        //Change the antiquarian of the antiquity and save, again if the antiquity is modified at the same time
+        this.saveWithRetry(antiquity.getIdAntiquity(), listing -> listing.setMailAntiquarian(emailNewAntiquarian));
+        this.publishChange(antiquity.getIdAntiquity());
        //Prepare a mail with the inforamtion of the antiquity to warn the antiquarian
         Map<String,String> otherInformation = new HashMap<>();
         otherInformation.put("title", antiquity.getTitleAntiquity());
         otherInformation.put("description", antiquity.getDescriptionAntiquity());
-        otherInformation.put("price", antiquity.getPriceAntiquity().toString());
+        otherInformation.put("price", Money.toString(antiquity.getPrice()));
         //Send the mail
         this.emailService.sendHtmlEmail(emailNewAntiquarian, "info@anticairapp.sixela.be", TypeOfMail.REDISTRIBUTEANTIQUITYNEWANTIQUARIAN, otherInformation);
         return true;
     }
 
     /**
-     * Allow to change an antiquity to sold and pay the antiquarian
+     * Know if an antiquity can be sold, to check it before taking the payment of the buyer
      * @param listingId the id of the Antiquity
+     * @return true if the antiquity is accepted (modified or not), false if it doesn't exist or can't be sold
      * @author Zarzycki Alexis
      */
+    @Transactional
+    public boolean canBeSold(Long listingId) {
+        return ListingRepository.findById(listingId)
+                .map(listing -> AntiquityStateMachine.transition(listing.getState(), AntiquityAction.SELL) != null)
+                .orElse(false);
+    }
+
+    /**
+     * Allow to change an antiquity to sold and pay the antiquarian.
+     * Marking again an antiquity already sold (for example a payment callback received twice) does nothing.
+     * An antiquity for which {@link #canBeSold(Long)} is true can only become sold, so it can always be marked
+     * once the payment is taken.
+     * @param listingId the id of the Antiquity
+     * @throws IllegalArgumentException if the antiquity doesn't exist
+     * @throws IllegalStateException if the antiquity is neither accepted nor sold
+     * @author Zarzycki Alexis
+     */
+    @Transactional
     public void markAsSold(Long listingId) throws MessagingException, IOException {
-        Listing listing = listingRepository.findById(listingId)
+        Listing listing = ListingRepository.findById(listingId)
                 .orElseThrow(() -> new IllegalArgumentException("Listing not found"));
-        listing.setState(AntiquityState.SOLD.getState());
-        listingRepository.save(listing);
+        AntiquityTransition transition = AntiquityStateMachine.transition(listing.getState(), AntiquityAction.SELL);
+        if (transition == null || !this.applyTransition(listing, transition)) {
+            // Already sold (maybe by a concurrent call), or in a state that can't be sold
+            if (listingRepository.existsByIdAntiquityAndState(listing.getIdAntiquity(), SOLD.getState())) {
+                return;
+            }
+            throw new IllegalStateException("Listing can't be sold");
+        }
+        this.publishStreamEvent(ListingStreamEvent.Type.SOLD, listing);
     }
 
     /**
@@ -371,11 +659,26 @@ public class ListingService {
      * @author Neve Thierry
      * @see ListingRepository#findByStateInAndMailAntiquarian(List, String)
      */
-
+    @Transactional
     public List<Listing> getAntiquitiesByState(String mailAntiquarian) {
         return listingRepository.findByStateInAndMailAntiquarian(Arrays.asList(0, 2), mailAntiquarian);
     }
 
+    /**
+     * Retrieves the view of the antiquities associated with a specific antiquarian that have a state of 0 or 2,
+     * without loading the entities.
+     *
+     * @param mailAntiquarian the email of the antiquarian whose antiquities are to be retrieved
+     * @return a list of {@link ListingSummary} that match the filtering criteria
+     *
+     * @author Zarzycki Alexis
+     * @see #getAntiquitiesByState(String)
+     */
+    @Transactional(readOnly = true)
+    public List<ListingSummary> getAntiquitySummariesByState(String mailAntiquarian) {
+        return listingRepository.getSummariesByStateInAndMailAntiquarian(Arrays.asList(0, 2), mailAntiquarian);
+    }
+
     /**
      * Retrieves a list of visible antiquities (isDisplay = true) associated with a seller by their email.
      *
@@ -387,10 +690,25 @@ public class ListingService {
      *
      * @author Neve Thierry
      */
+    @Transactional
     public List<Listing> getAntiquitiesByMailSeller(String mailSeller) {
         return listingRepository.getAllAntiquityDisplayByMailSeller(mailSeller);
     }
 
+    /**
+     * Retrieves the view of the visible antiquities (isDisplay = true) of a seller, without loading the entities.
+     *
+     * @param mailSeller The email address of the seller for whom the antiquities are retrieved.
+     * @return A list of {@link ListingSummary} of the visible antiquities of the seller.
+     *
+     * @author Zarzycki Alexis
+     * @see #getAntiquitiesByMailSeller(String)
+     */
+    @Transactional(readOnly = true)
+    public List<ListingSummary> getAntiquitySummariesByMailSeller(String mailSeller) {
+        return listingRepository.getAllAntiquityDisplaySummariesByMailSeller(mailSeller);
+    }
+
     /**
      * Updates the 'isDisplay' field of a listing to false based on the provided ID.
      *
@@ -404,12 +722,82 @@ public class ListingService {
      * @author Neve Thierry
      */
     public Listing updateIsDisplay(long id) {
-        Listing listing = listingRepository.findById(id).orElseThrow(() -> new RuntimeException("Entity not found"));
+            Listing saved = this.saveWithRetry(Math.toIntExact(id), antiquity -> antiquity.setIsDisplay(false));
+            this.publishChange(saved.getIdAntiquity());
+            return saved;
+    }
+
+    /**
+     * Apply an idempotent modification to a listing and save it. If the listing has been modified by someone
+     * else in the meantime, the listing is read again and the modification applied again, at most
+     * listing.update.max-attempts times. Each attempt reads and saves the listing in its own read-write transaction,
+     * so on the primary.
+     *
+     * @param idAntiquity the id of the listing
+     * @param modification the modification, which gives the same result if applied several times
+     * @return the listing saved
+     * @throws RuntimeException if the listing doesn't exist
+     * @throws OptimisticLockingFailureException if the listing is still modified concurrently at the last attempt
+     * @author Zarzycki Alexis
+     */
+    private Listing saveWithRetry(Integer idAntiquity, Consumer<Listing> modification) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    Listing current = ListingRepository.findById(Long.valueOf(idAntiquity))
+                            .orElseThrow(() -> new RuntimeException("Entity not found"));
+                    modification.accept(current);
+                    return ListingRepository.saveAndFlush(current);
+                });
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxUpdateAttempts) throw e;
+            }
+        }
+    }
 
-            listing.setIsDisplay(false);
-            return ListingRepository.save(listing);
+    /**
+     * Apply a transition to a listing read before: the state (and the price if the commission is applied) are changed
+     * by one conditional update, only if the state (and the version when the price is changed) hasn't changed since the read.
+     * The listing given is updated like the database.
+     *
+     * @param listing the listing read
+     * @param transition the transition allowed from the state of the listing
+     * @return true if the transition has been applied, false if the state of the listing has changed since the read
+     * @author Zarzycki Alexis
+     * @see AntiquityStateMachine
+     */
+    private boolean applyTransition(Listing listing, AntiquityTransition transition) {
+        Money newPrice = transition.isApplyCommission() && listing.getPrice() != null ? Commission.apply(listing.getPrice()) : listing.getPrice();
+        int updated = transition.isApplyCommission()
+                ? ListingRepository.compareAndSetStateAndPrice(listing.getIdAntiquity(), listing.getState(), listing.getVersion(), transition.getTarget().getState(), newPrice)
+                : ListingRepository.compareAndSetState(listing.getIdAntiquity(), List.of(listing.getState()), transition.getTarget().getState());
+        if (updated == 0) return false;
+        listing.setState(transition.getTarget().getState());
+        listing.setVersion(listing.getVersion() + 1);
+        listing.setPrice(newPrice);
+        this.publishChange(listing.getIdAntiquity());
+        return true;
+    }
 
+    /**
+     * Warn the rest of the application (for example the cache) that a listing has been modified
+     * @param idAntiquity the id of the modified antiquity
+     * @author Zarzycki Alexis
+     */
+    private void publishChange(Integer idAntiquity) {
+        eventPublisher.publishEvent(new ListingChangedEvent(idAntiquity));
+    }
 
+    /**
+     * Push a listing accepted or sold to the clients of the stream, once the modification is committed
+     * @param type the kind of the event
+     * @param listing the listing accepted or sold
+     * @author Zarzycki Alexis
+     * @see ListingEventBroadcaster
+     */
+    private void publishStreamEvent(ListingStreamEvent.Type type, Listing listing) {
+        if (listing == null) return;
+        eventPublisher.publishEvent(ListingStreamEvent.of(type, listing));
     }
 }
 
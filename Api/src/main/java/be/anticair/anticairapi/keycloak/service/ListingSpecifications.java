@@ -0,0 +1,92 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.Money;
+import jakarta.persistence.criteria.Expression;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * The criteria available to filter the listings
+ * @author Zarzycki Alexis
+ * @see ListingFilterService
+ */
+public final class ListingSpecifications {
+
+    private ListingSpecifications() {
+    }
+
+    /**
+     * The listing is displayed (not removed by its seller)
+     * @return the criterion
+     * @author Zarzycki Alexis
+     */
+    public static Specification<Listing> isDisplayed() {
+        return (root, query, cb) -> cb.isTrue(root.get("isDisplay"));
+    }
+
+    /**
+     * The state of the listing is one of the given states
+     * @param states the states accepted
+     * @return the criterion
+     * @author Zarzycki Alexis
+     */
+    public static Specification<Listing> hasStateIn(Collection<Integer> states) {
+        return (root, query, cb) -> root.get("state").in(states);
+    }
+
+    /**
+     * The price of the listing is in a range, each bound is optional
+     * @param minPrice the minimum price (included), null if there isn't minimum
+     * @param maxPrice the maximum price (included), null if there isn't maximum
+     * @return the criterion, null if there isn't any bound
+     * @author Zarzycki Alexis
+     */
+    public static Specification<Listing> priceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) return null;
+        return (root, query, cb) -> {
+            Expression<Money> price = root.get("priceAntiquity");
+            if (minPrice == null) return cb.lessThanOrEqualTo(price, Money.of(maxPrice));
+            if (maxPrice == null) return cb.greaterThanOrEqualTo(price, Money.of(minPrice));
+            return cb.between(price, Money.of(minPrice), Money.of(maxPrice));
+        };
+    }
+
+    /**
+     * The listing is sold by a seller
+     * @param mailSeller the email of the seller, null for all the sellers
+     * @return the criterion, null if there isn't seller
+     * @author Zarzycki Alexis
+     */
+    public static Specification<Listing> hasSeller(String mailSeller) {
+        if (mailSeller == null || mailSeller.isBlank()) return null;
+        return (root, query, cb) -> cb.equal(root.get("mailSeller"), mailSeller);
+    }
+
+    /**
+     * The title or the description of the listing contains a text, the case is ignored
+     * @param text the text, null for all the listings
+     * @return the criterion, null if there isn't text
+     * @author Zarzycki Alexis
+     */
+    public static Specification<Listing> textContains(String text) {
+        if (text == null || text.isBlank()) return null;
+        String pattern = "%" + escapeLike(text.strip().toLowerCase(Locale.ROOT)) + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("titleAntiquity")), pattern, '\\'),
+                cb.like(cb.lower(root.get("descriptionAntiquity")), pattern, '\\'));
+    }
+
+    /**
+     * Escape the special characters of a LIKE pattern
+     * @param text the text
+     * @return the text with the characters \, % and _ escaped
+     * @author Zarzycki Alexis
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,94 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.ListingStateStats;
+import be.anticair.anticairapi.Class.ListingStats;
+import be.anticair.anticairapi.enumeration.AntiquityState;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Service giving the statistics of the catalog.
+ *
+ * <p>The statistics are read from the tables listing_state_stats and listing_antiquarian_backlog, maintained by
+ * triggers of the database at each write on the antiquities (see the migration V7), so reading them doesn't
+ * depend on the size of the catalog.</p>
+ * @author Zarzycki Alexis
+ */
+@Service
+public class ListingStatsService {
+
+    private static final String STATE_STATS_QUERY =
+            "SELECT state, listing_count, price_count, price_sum, price_min, price_max FROM listing_state_stats ORDER BY state";
+
+    private static final String BACKLOG_QUERY =
+            "SELECT mail_antiquarian, backlog FROM listing_antiquarian_backlog WHERE backlog > 0 ORDER BY backlog DESC, mail_antiquarian";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ListingStatsService(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Get the statistics of the catalog: by state (every state is given, even without listing),
+     * for the whole catalog, and the backlog of each antiquarian
+     * @return the statistics
+     * @author Zarzycki Alexis
+     */
+    @Transactional(readOnly = true)
+    public ListingStats getStats() {
+        Map<String, ListingStateStats> states = new LinkedHashMap<>();
+        for (AntiquityState state : AntiquityState.values()) {
+            states.put(state.name(), new ListingStateStats(0, null, null, null));
+        }
+
+        long[] total = {0, 0};
+        BigDecimal[] totalSum = {BigDecimal.ZERO};
+        BigDecimal[] totalMinMax = {null, null};
+        jdbcTemplate.query(STATE_STATS_QUERY, resultSet -> {
+            long count = resultSet.getLong("listing_count");
+            long priceCount = resultSet.getLong("price_count");
+            BigDecimal priceSum = resultSet.getBigDecimal("price_sum");
+            // numeric(12,2) since V8, read without going through a double
+            BigDecimal priceMin = resultSet.getBigDecimal("price_min");
+            BigDecimal priceMax = resultSet.getBigDecimal("price_max");
+            states.put(stateName(resultSet.getInt("state")), new ListingStateStats(count, priceMin, priceMax, average(priceSum, priceCount)));
+
+            total[0] += count;
+            total[1] += priceCount;
+            totalSum[0] = totalSum[0].add(priceSum);
+            if (priceMin != null && (totalMinMax[0] == null || priceMin.compareTo(totalMinMax[0]) < 0)) totalMinMax[0] = priceMin;
+            if (priceMax != null && (totalMinMax[1] == null || priceMax.compareTo(totalMinMax[1]) > 0)) totalMinMax[1] = priceMax;
+        });
+
+        Map<String, Long> backlogs = new LinkedHashMap<>();
+        jdbcTemplate.query(BACKLOG_QUERY, resultSet -> {
+            backlogs.put(resultSet.getString("mail_antiquarian"), resultSet.getLong("backlog"));
+        });
+
+        ListingStateStats totalStats = new ListingStateStats(total[0], totalMinMax[0], totalMinMax[1], average(totalSum[0], total[1]));
+        return new ListingStats(totalStats, states, backlogs);
+    }
+
+    /**
+     * The name of a state, the number itself for a state unknown by the application
+     */
+    private static String stateName(int state) {
+        AntiquityState known = AntiquityState.fromState(state);
+        return known != null ? known.name() : String.valueOf(state);
+    }
+
+    /**
+     * The average of the prices, rounded to the cent (half up) like the amounts of {@link be.anticair.anticairapi.Class.Money}
+     */
+    private static BigDecimal average(BigDecimal sum, long count) {
+        return count == 0 ? null : sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,60 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.Listing;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Event published when a listing is accepted or sold, pushed to the clients of the stream of the listings
+ * @author Zarzycki Alexis
+ * @see ListingEventBroadcaster
+ */
+@Getter
+@AllArgsConstructor
+public class ListingStreamEvent {
+
+    /**
+     * The kind of events of the stream
+     */
+    public enum Type {
+        /**
+         * A listing has been accepted and is now in the catalog
+         */
+        ACCEPTED,
+        /**
+         * A listing has been sold
+         */
+        SOLD
+    }
+
+    /**
+     * The kind of the event
+     */
+    private final Type type;
+
+    /**
+     * The id of the antiquity
+     */
+    private final Integer idAntiquity;
+
+    /**
+     * The title of the antiquity
+     */
+    private final String titleAntiquity;
+
+    /**
+     * The price of the antiquity
+     */
+    private final Double priceAntiquity;
+
+    /**
+     * Create the event of a listing
+     * @param type the kind of the event
+     * @param listing the listing accepted or sold
+     * @return the event
+     * @author Zarzycki Alexis
+     */
+    public static ListingStreamEvent of(Type type, Listing listing) {
+        return new ListingStreamEvent(type, listing.getIdAntiquity(), listing.getTitleAntiquity(), listing.getPriceAntiquity());
+    }
+}
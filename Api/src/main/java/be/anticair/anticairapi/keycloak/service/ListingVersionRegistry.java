@@ -0,0 +1,67 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keep a version of each listing and of the accepted catalog, to build the ETag of the read endpoints.
+ *
+ * <p>The versions are incremented by the {@link ListingChangedEvent}, so an ETag can be computed
+ * without reading the database. The versions are kept in memory: an epoch chosen at startup is
+ * part of each ETag, so the ETags given before a restart are never reused.</p>
+ *
+ * @author Zarzycki Alexis
+ */
+@Component
+public class ListingVersionRegistry {
+
+    /**
+     * Epoch of this instance of the application
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * The version of each listing modified since the startup, the others are at 0
+     */
+    private final ConcurrentHashMap<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * The version of the accepted catalog
+     */
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    /**
+     * Build the ETag of a listing.
+     * It must be computed before the read of the listing, so a modification during the read changes the next ETag.
+     * @param idAntiquity the id of the antiquity
+     * @return the strong ETag of the listing
+     * @author Zarzycki Alexis
+     */
+    public String listingETag(Integer idAntiquity) {
+        return "\"" + epoch + "-" + idAntiquity + "-" + versions.getOrDefault(idAntiquity, 0L) + "\"";
+    }
+
+    /**
+     * Build the ETag of the accepted catalog.
+     * It must be computed before the read of the catalog, so a modification during the read changes the next ETag.
+     * @return the strong ETag of the catalog
+     * @author Zarzycki Alexis
+     */
+    public String catalogETag() {
+        return "\"" + epoch + "-c" + catalogVersion.get() + "\"";
+    }
+
+    /**
+     * Increment the versions once a modification of a listing is committed
+     * @param event the event of the modification
+     * @author Zarzycki Alexis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        versions.merge(event.getIdAntiquity(), 1L, Long::sum);
+        catalogVersion.incrementAndGet();
+    }
+}
@@ -0,0 +1,49 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.ListingSummary;
+import be.anticair.anticairapi.Class.ListingWithPhotosDto;
+import be.anticair.anticairapi.Class.PhotoAntiquity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build the {@link ListingWithPhotosDto} of the list endpoints.
+ *
+ * <p>The photos of all the listings are loaded together, so the number of queries
+ * doesn't depend on the number of listings.</p>
+ *
+ * @author Zarzycki Alexis
+ */
+@Component
+public class ListingWithPhotosAssembler {
+
+    private final PhotoAntiquityService photoAntiquityService;
+
+    public ListingWithPhotosAssembler(PhotoAntiquityService photoAntiquityService) {
+        this.photoAntiquityService = photoAntiquityService;
+    }
+
+    /**
+     * Build the DTO of each listing with its photos
+     * @param listings the view of the listings
+     * @return the listings with their photos, in the same order
+     * @author Zarzycki Alexis
+     * @see PhotoAntiquityService#findByIdAntiquities(java.util.Collection)
+     */
+    public List<ListingWithPhotosDto> toDtos(List<ListingSummary> listings) {
+        List<Integer> ids = new ArrayList<>(listings.size());
+        for (ListingSummary listing : listings) {
+            ids.add(listing.getIdAntiquity());
+        }
+        Map<Integer, List<PhotoAntiquity>> photos = photoAntiquityService.findByIdAntiquities(ids);
+
+        List<ListingWithPhotosDto> dtos = new ArrayList<>(listings.size());
+        for (ListingSummary listing : listings) {
+            dtos.add(new ListingWithPhotosDto(listing, photos.getOrDefault(listing.getIdAntiquity(), List.of())));
+        }
+        return dtos;
+    }
+}
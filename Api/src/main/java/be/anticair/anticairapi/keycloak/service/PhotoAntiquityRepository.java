@@ -1,11 +1,14 @@
 package be.anticair.anticairapi.keycloak.service;
 
 import be.anticair.anticairapi.Class.PhotoAntiquity;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -29,11 +32,27 @@ public interface PhotoAntiquityRepository extends JpaRepository<PhotoAntiquity,
      * @return a list of {@link PhotoAntiquity} objects representing the photos associated
      *         with the specified antiquity
      *
+     * <p>The result is kept in the query cache (region photo-by-antiquity) until the photos are modified.</p>
+     *
      * @author Neve Thierry
      * @see PhotoAntiquity
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "photo-by-antiquity")
+    })
     List<PhotoAntiquity> findByIdAntiquity(Integer idAntiquity);
 
+    /**
+     * Retrieves all photos associated with several antiquities in one query.
+     *
+     * @param idAntiquities the IDs of the antiquities whose associated photos are to be retrieved
+     * @return a list of {@link PhotoAntiquity} objects, ordered by antiquity then by photo
+     * @author Zarzycki Alexis
+     * @see PhotoAntiquityService#findByIdAntiquities(Collection)
+     */
+    List<PhotoAntiquity> findByIdAntiquityInOrderByIdAntiquityAscIdPhotoAsc(Collection<Integer> idAntiquities);
+
     /**
      * Find the photo path from a Id Antiquity
      * @param idAntiquity the ID of the antiquity
@@ -41,4 +60,25 @@ public interface PhotoAntiquityRepository extends JpaRepository<PhotoAntiquity,
      */
     @Query("SELECT p.pathPhoto FROM PhotoAntiquity p WHERE p.idAntiquity = ?1")
     List<String> findPathByIdAntiquity(Integer idAntiquity);
+
+    /**
+     * Find the antiquities having a photo with a path
+     * @param pathPhoto the path of the photo
+     * @return the ids of the antiquities
+     * @author Zarzycki Alexis
+     */
+    @Query("SELECT DISTINCT p.idAntiquity FROM PhotoAntiquity p WHERE p.pathPhoto = ?1")
+    List<Integer> findIdAntiquityByPathPhoto(String pathPhoto);
+
+    /**
+     * Change the path of all the photos with a path, the photos are removed from the second-level cache
+     * @param oldPath the current path
+     * @param newPath the new path
+     * @return the number of photos modified
+     * @author Zarzycki Alexis
+     * @see PhotoLayoutMigrator
+     */
+    @Modifying
+    @Query("UPDATE PhotoAntiquity p SET p.pathPhoto = ?2 WHERE p.pathPhoto = ?1")
+    int updatePathPhoto(String oldPath, String newPath);
 }
@@ -2,15 +2,15 @@ package be.anticair.anticairapi.keycloak.service;
 
 import be.anticair.anticairapi.Class.Listing;
 import be.anticair.anticairapi.Class.PhotoAntiquity;
-import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * A Service for the Photo Antiquity
@@ -18,10 +18,29 @@ import java.util.UUID;
 @Service
 public class PhotoAntiquityService {
 
+    /**
+     * Maximum number of ids given in one query, to stay far from the limit of parameters of the database
+     */
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     private PhotoAntiquityRepository photoAntiquityRepository;
 
-    public PhotoAntiquityService(PhotoAntiquityRepository photoAntiquityRepository) {
+    private ApplicationEventPublisher eventPublisher;
+
+    private PhotoDerivativeService photoDerivativeService;
+
+    private PhotoStorage photoStorage;
+
+    private TransactionTemplate transactionTemplate;
+
+    public PhotoAntiquityService(PhotoAntiquityRepository photoAntiquityRepository, ApplicationEventPublisher eventPublisher,
+                                 PhotoDerivativeService photoDerivativeService, PhotoStorage photoStorage,
+                                 PlatformTransactionManager transactionManager) {
         this.photoAntiquityRepository = photoAntiquityRepository;
+        this.eventPublisher = eventPublisher;
+        this.photoDerivativeService = photoDerivativeService;
+        this.photoStorage = photoStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -29,8 +48,10 @@ public class PhotoAntiquityService {
      *
      * <p>This method performs the following operations:
      * <ul>
-     *   <li>Deletes all existing photos associated with the specified antiquity ID.</li>
-     *   <li>Processes and saves the provided list of new photos to both the file system and the database.</li>
+     *   <li>Saves the provided list of new photos and their smaller versions to the file system, the photos
+     *   which didn't change are already there and aren't written again.</li>
+     *   <li>Deletes all existing photos associated with the specified antiquity ID and saves the new ones
+     *   in the database, in one transaction.</li>
      * </ul>
      * If a file is empty or an error occurs during processing, an {@link IOException} is thrown.</p>
      *
@@ -42,13 +63,9 @@ public class PhotoAntiquityService {
      * @see PhotoAntiquityRepository#deleteByIdAntiquity(Integer)
      * @see MultipartFile
      */
-    @Transactional
     public void updatePhotos(Integer antiquityId, List<MultipartFile> photos) throws IOException {
         try {
-            // Delete the old images
-            photoAntiquityRepository.deleteByIdAntiquity(antiquityId);
-
-            // Add the new images
+            List<String> paths = new ArrayList<>();
             for (MultipartFile file : photos) {
                 // Verify if the files isn't null
                 if (file.isEmpty()) {
@@ -56,15 +73,19 @@ public class PhotoAntiquityService {
                 }
 
                 // Save the file on the HD
-                String filePath = saveFile(file);
+                paths.add(saveFile(file));
+            }
+            // The smaller versions are made before the transaction, which doesn't wait for them
+            List<String> variantWidths = photoDerivativeService.generate(paths);
 
-                PhotoAntiquity photo = new PhotoAntiquity();
-                photo.setPathPhoto(filePath);
-                photo.setIdAntiquity(antiquityId);
+            transactionTemplate.executeWithoutResult(status -> {
+                // Delete the old images
+                photoAntiquityRepository.deleteByIdAntiquity(antiquityId);
 
-                // Save on the database
-                photoAntiquityRepository.save(photo);
-            }
+                // Add the new images, the inserts are sent in batches
+                photoAntiquityRepository.saveAll(this.toPhotos(antiquityId, paths, variantWidths));
+                eventPublisher.publishEvent(new ListingChangedEvent(antiquityId));
+            });
         } catch (IOException e) {
             
             System.err.println("Error with the update of the pictures : " + e.getMessage());
@@ -89,6 +110,7 @@ public class PhotoAntiquityService {
         PhotoAntiquity photoAntiquity = new PhotoAntiquity();
         photoAntiquity.setPathPhoto(photoPath);
         photoAntiquity.setIdAntiquity(antiquity.getIdAntiquity());
+        photoAntiquity.setVariantWidths(photoDerivativeService.generate(List.of(photoPath)).get(0));
 
         // Sauvegarder dans la base de données
         return photoAntiquityRepository.save(photoAntiquity);
@@ -97,6 +119,9 @@ public class PhotoAntiquityService {
     /**
      * Create a list of photos for an antiquity.
      *
+     * <p>The files and their smaller versions are saved first, then the photos are inserted in the database
+     * in batches (hibernate.jdbc.batch_size) in one transaction.</p>
+     *
      * @param antiquity The antiquity to associate the photos with.
      * @param photoFiles The photo files to save.
      * @return The list of created photos.
@@ -104,59 +129,64 @@ public class PhotoAntiquityService {
      * @author Blommaert Youry
      */
     public List<PhotoAntiquity> createPhotoAntiquities(Listing antiquity, List<MultipartFile> photoFiles) throws IOException {
-        List<PhotoAntiquity> savedPhotos = new ArrayList<>();
-
+        List<String> paths = new ArrayList<>();
         for (MultipartFile photoFile : photoFiles) {
-            PhotoAntiquity savedPhoto = createPhotoAntiquity(antiquity, photoFile);
-            savedPhotos.add(savedPhoto);
+            paths.add(saveFile(photoFile));
         }
+        return this.createPhotoAntiquities(antiquity.getIdAntiquity(), paths);
+    }
 
-        return savedPhotos;
+    /**
+     * Create the photos of an antiquity from files already saved: their smaller versions are made,
+     * then the photos are inserted in batches in one transaction.
+     *
+     * @param idAntiquity The id of the antiquity to associate the photos with.
+     * @param paths The paths of the saved files, as returned by {@link #saveFile(MultipartFile)}.
+     * @return The list of created photos.
+     * @author Zarzycki Alexis
+     * @see PhotoIngestionService
+     * @see PhotoDerivativeService
+     */
+    public List<PhotoAntiquity> createPhotoAntiquities(Integer idAntiquity, List<String> paths) {
+        List<String> variantWidths = photoDerivativeService.generate(paths);
+        List<PhotoAntiquity> saved = transactionTemplate.execute(status ->
+                photoAntiquityRepository.saveAll(this.toPhotos(idAntiquity, paths, variantWidths)));
+        eventPublisher.publishEvent(new ListingChangedEvent(idAntiquity));
+        return saved;
+    }
+
+    /**
+     * Build the photos of an antiquity from the saved files
+     * @param idAntiquity The id of the antiquity.
+     * @param paths The paths of the saved files.
+     * @param variantWidths The widths of the smaller versions of each file, in the same order.
+     * @return The photos, not saved.
+     */
+    private List<PhotoAntiquity> toPhotos(Integer idAntiquity, List<String> paths, List<String> variantWidths) {
+        List<PhotoAntiquity> photos = new ArrayList<>(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            PhotoAntiquity photoAntiquity = new PhotoAntiquity();
+            photoAntiquity.setPathPhoto(paths.get(i));
+            photoAntiquity.setIdAntiquity(idAntiquity);
+            photoAntiquity.setVariantWidths(variantWidths.get(i));
+            photos.add(photoAntiquity);
+        }
+        return photos;
     }
 
     /**
      * Save a file on the server.
      *
+     * <p>The file is named by the SHA-256 of its content, so the same image uploaded again gets the same path
+     * and isn't written twice (see {@link PhotoStorage}).</p>
+     *
      * @param file The file to save.
      * @return The path to the saved file.
      * @throws IOException If an error occurs while saving the file.
      * @author Blommaert Youry, Neve Thierry
      */
     public String saveFile(MultipartFile file) throws IOException {
-        // Define the directory where the files will be saved
-        String directory = System.getProperty("user.dir") + "/uploads/";
-
-        // Create the directory if it doesn't exist
-        File directoryPath = new File(directory);
-        if (!directoryPath.exists()) {
-            directoryPath.mkdirs();  // Create the directory
-        }
-
-        if (file.isEmpty()) {
-            throw new IOException("The file is empty!");
-        }
-
-        // Generate a unique name for the file (UUID)
-        String extension = "";
-        String originalFileName = file.getOriginalFilename();
-        if (originalFileName != null) {
-            int dotIndex = originalFileName.lastIndexOf('.');
-            if (dotIndex > 0 && dotIndex < originalFileName.length() - 1) {
-                extension = originalFileName.substring(dotIndex); // Extract the file extension
-            }
-        }
-
-        String newFileName = UUID.randomUUID().toString() + extension; // Create a unique name
-
-        // Create the file path
-        String filePath = directory + newFileName;
-        File dest = new File(filePath);
-
-        // Save the file
-        file.transferTo(dest);
-
-        // Return the path to the saved file
-        return "/uploads/" + dest.getName();
+        return photoStorage.store(file);
     }
 
     /**
@@ -173,11 +203,40 @@ public class PhotoAntiquityService {
      * @see PhotoAntiquity
      * @see PhotoAntiquityRepository#findByIdAntiquity(Integer)
      */
+    @Transactional(readOnly = true)
     public List<PhotoAntiquity> findByIdAntiquity(Integer id) {
         // Récupérer les photos associées
         return photoAntiquityRepository.findByIdAntiquity(id);
     }
 
+    /**
+     * Retrieves the photos of several antiquities, grouped by antiquity.
+     *
+     * <p>The photos are loaded with one query for each block of {@value #MAX_IDS_PER_QUERY} antiquities,
+     * instead of one query by antiquity. An antiquity without photo has no entry in the map.</p>
+     *
+     * @param ids the IDs of the antiquities whose photos are to be retrieved
+     * @return a map with the id of the antiquity as key and its photos as value
+     *
+     * @author Zarzycki Alexis
+     * @see PhotoAntiquityRepository#findByIdAntiquityInOrderByIdAntiquityAscIdPhotoAsc(Collection)
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, List<PhotoAntiquity>> findByIdAntiquities(Collection<Integer> ids) {
+        Map<Integer, List<PhotoAntiquity>> photosByAntiquity = new HashMap<>();
+        if (ids == null || ids.isEmpty()) return photosByAntiquity;
+
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (int from = 0; from < distinctIds.size(); from += MAX_IDS_PER_QUERY) {
+            List<Integer> block = distinctIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, distinctIds.size()));
+            for (PhotoAntiquity photo : photoAntiquityRepository.findByIdAntiquityInOrderByIdAntiquityAscIdPhotoAsc(block)) {
+                photosByAntiquity.computeIfAbsent(photo.getIdAntiquity(), key -> new ArrayList<>()).add(photo);
+            }
+        }
+        return photosByAntiquity;
+    }
+
+    @Transactional(readOnly = true)
     public List<String> findPathByIdAntiquity(Integer id) {
         // Récupérer les photos associées
         return photoAntiquityRepository.findPathByIdAntiquity(id);
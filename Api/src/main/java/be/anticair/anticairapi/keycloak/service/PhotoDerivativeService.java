@@ -0,0 +1,231 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.PhotoAntiquity;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Generation of the smaller versions (variants) of the photos, so the pages showing small previews don't download
+ * the original files.
+ *
+ * <p>Each photo gets one variant for each width of {@code photo.derivatives.widths} smaller than the photo, written
+ * next to it (see {@link PhotoAntiquity#variantPath(String, int)}). The variants are made from the largest to the
+ * smallest, each one from the previous one, which costs much less than scaling the original each time. The photos
+ * are named after their content (see {@link PhotoStorage}), so the variants of an image uploaded again are already on
+ * the disk and are not made again.</p>
+ *
+ * <p>Scaling an image uses the processor and the memory, so it is done on a small pool of
+ * {@code photo.derivatives.threads} threads: only these threads decode images. When the queue of the pool is full,
+ * the callers wait for a place before submitting, which slows down the uploads instead of decoding more images at
+ * the same time (the callers are virtual threads, their number has no limit).</p>
+ * @author Zarzycki Alexis
+ */
+@Service
+public class PhotoDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoDerivativeService.class);
+
+    private final List<Integer> widths;
+
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * The places in the pool (threads and queue), taken before submitting a photo and given back when it is done
+     */
+    private final Semaphore slots;
+
+    public PhotoDerivativeService(@Value("${photo.derivatives.widths:200,600,1200}") List<Integer> widths,
+                                  @Value("${photo.derivatives.threads:2}") int threads,
+                                  @Value("${photo.derivatives.queue-capacity:64}") int queueCapacity) {
+        List<Integer> sorted = new ArrayList<>(new TreeSet<>(widths));
+        Collections.reverse(sorted);
+        this.widths = List.copyOf(sorted);
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        this.slots = new Semaphore(threads + queueCapacity);
+        // The images are decoded in memory, without temporary files
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Get the widths of the variants
+     * @return the widths, from the largest
+     * @author Zarzycki Alexis
+     */
+    public List<Integer> getWidths() {
+        return widths;
+    }
+
+    /**
+     * Make the variants of several photos on the pool
+     * @param paths the paths of the photos, as returned by {@link PhotoAntiquityService#saveFile}
+     * @return the widths of the variants made for each photo (see {@link PhotoAntiquity#getVariantWidths()}),
+     *         in the order of the paths, null for a photo without variant
+     * @author Zarzycki Alexis
+     */
+    public List<String> generate(List<String> paths) {
+        List<Future<String>> tasks = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            try {
+                // Wait for a place, the pool never rejects a photo
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                tasks.add(workers.submit(() -> {
+                    try {
+                        return this.generate(path);
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                // The pool is stopped
+                slots.release();
+                throw e;
+            }
+        }
+        List<String> variantWidths = new ArrayList<>(paths.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                variantWidths.add(tasks.get(i).get());
+            } catch (ExecutionException e) {
+                // The original photo is still displayed
+                logger.warn("Error with the variants of the picture {}", paths.get(i), e.getCause());
+                variantWidths.add(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                variantWidths.add(null);
+            }
+        }
+        // The photos not submitted because of an interruption have no variant
+        while (variantWidths.size() < paths.size()) {
+            variantWidths.add(null);
+        }
+        return variantWidths;
+    }
+
+    /**
+     * Make the variants of a photo
+     * @param path the path of the photo
+     * @return the widths of the variants made, from the largest, separated by commas, null if the file isn't an image or is already small
+     * @throws IOException if the photo can't be read or a variant can't be written
+     */
+    private String generate(String path) throws IOException {
+        if (widths.isEmpty()) return null;
+        String existing = this.existingVariants(path);
+        if (existing != null) return existing;
+
+        BufferedImage source = ImageIO.read(this.toFile(path));
+        if (source == null) return null;
+
+        String format = PhotoAntiquity.variantFormat(path);
+        StringJoiner made = new StringJoiner(",");
+        for (int width : widths) {
+            if (width >= source.getWidth()) continue;
+            source = this.scale(source, width, "png".equals(format));
+            this.write(source, format, this.toFile(PhotoAntiquity.variantPath(path, width)).toPath());
+            made.add(String.valueOf(width));
+        }
+        return made.length() == 0 ? null : made.toString();
+    }
+
+    /**
+     * Find the variants already made for a photo: the files are named after the content of the photo, so the same
+     * image uploaded again already has its variants
+     * @param path the path of the photo
+     * @return the widths of the variants, from the largest, separated by commas, null if they aren't all made
+     */
+    private String existingVariants(String path) {
+        // The smallest variant is written last, and every photo with variants has it
+        int smallest = widths.get(widths.size() - 1);
+        if (!this.toFile(PhotoAntiquity.variantPath(path, smallest)).exists()) return null;
+
+        StringJoiner existing = new StringJoiner(",");
+        for (int width : widths) {
+            if (this.toFile(PhotoAntiquity.variantPath(path, width)).exists()) existing.add(String.valueOf(width));
+        }
+        return existing.toString();
+    }
+
+    /**
+     * Write a variant to a temporary file then move it to its name, so a variant found on the disk is complete
+     */
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        Path temporary = Files.createTempFile(target.getParent(), ".variant-", ".tmp");
+        try {
+            if (!ImageIO.write(image, format, temporary.toFile())) {
+                throw new IOException("No writer for the format " + format);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Scale an image to a width, keeping its proportions
+     */
+    private BufferedImage scale(BufferedImage source, int width, boolean keepAlpha) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!keepAlpha) {
+                // The transparent parts become white in a JPEG
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Delete the variants of a photo, the missing ones are ignored
+     * @param path the path of the photo
+     * @author Zarzycki Alexis
+     */
+    public void deleteVariants(String path) {
+        for (int width : widths) {
+            File variant = this.toFile(PhotoAntiquity.variantPath(path, width));
+            if (variant.exists() && !variant.delete()) {
+                logger.warn("Error with the deletion of the picture {}", variant);
+            }
+        }
+    }
+
+    private File toFile(String path) {
+        return new File(System.getProperty("user.dir") + path);
+    }
+
+    /**
+     * Stop the pool when the application stops
+     * @author Zarzycki Alexis
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
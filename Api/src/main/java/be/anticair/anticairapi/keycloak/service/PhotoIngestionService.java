@@ -0,0 +1,168 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.PhotoIngestionStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Ingestion of the photos uploaded with a listing.
+ *
+ * <p>The uploaded files only live during the request, so they are written to the disk before the response, but in
+ * parallel on virtual threads: at most {@code photo.ingestion.max-concurrent-writes} files are written at the same
+ * time for all the requests, so large uploads don't saturate the disk. The rest of the processing (the smaller
+ * versions of the photos, then their rows inserted in one batch) continues after the response, its progress is
+ * given by {@link #getStatus(Integer)}.</p>
+ * @author Zarzycki Alexis
+ */
+@Service
+public class PhotoIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoIngestionService.class);
+
+    private final PhotoAntiquityService photoAntiquityService;
+
+    private final Semaphore writePermits;
+
+    private final Duration statusRetention;
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * The last ingestion of each antiquity, with the time it finished (null while it is running)
+     */
+    private final Map<Integer, Entry> statuses = new ConcurrentHashMap<>();
+
+    public PhotoIngestionService(PhotoAntiquityService photoAntiquityService,
+                                 @Value("${photo.ingestion.max-concurrent-writes:8}") int maxConcurrentWrites,
+                                 @Value("${photo.ingestion.status-retention:15m}") Duration statusRetention) {
+        this.photoAntiquityService = photoAntiquityService;
+        this.writePermits = new Semaphore(maxConcurrentWrites);
+        this.statusRetention = statusRetention;
+    }
+
+    /**
+     * Write the photos of a listing to the disk, then save them in the database after the response.
+     *
+     * @param listing the listing of the photos, already saved
+     * @param photos the uploaded photos
+     * @return the status of the ingestion, pending
+     * @throws IOException if a file can't be written
+     * @author Zarzycki Alexis
+     */
+    public PhotoIngestionStatus ingest(Listing listing, List<MultipartFile> photos) throws IOException {
+        Integer idAntiquity = listing.getIdAntiquity();
+        List<String> paths = this.writeFiles(photos);
+
+        this.purgeExpired();
+        PhotoIngestionStatus pending = new PhotoIngestionStatus(idAntiquity, PhotoIngestionStatus.State.PENDING, paths.size(), null);
+        statuses.put(idAntiquity, new Entry(pending, null));
+        workers.execute(() -> {
+            PhotoIngestionStatus result;
+            try {
+                photoAntiquityService.createPhotoAntiquities(idAntiquity, paths);
+                result = new PhotoIngestionStatus(idAntiquity, PhotoIngestionStatus.State.DONE, paths.size(), null);
+            } catch (RuntimeException e) {
+                // The files without photo are deleted later by PhotoStorage, another listing may use them
+                logger.error("Error with the ingestion of the pictures of the antiquity {}", idAntiquity, e);
+                result = new PhotoIngestionStatus(idAntiquity, PhotoIngestionStatus.State.FAILED, paths.size(), e.getMessage());
+            }
+            statuses.put(idAntiquity, new Entry(result, System.nanoTime()));
+        });
+        return pending;
+    }
+
+    /**
+     * Get the progress of the last ingestion of the photos of an antiquity
+     * @param idAntiquity the id of the antiquity
+     * @return the status, empty if there isn't ingestion for this antiquity or it finished for a long time
+     * @author Zarzycki Alexis
+     */
+    public Optional<PhotoIngestionStatus> getStatus(Integer idAntiquity) {
+        Entry entry = statuses.get(idAntiquity);
+        return entry == null ? Optional.empty() : Optional.of(entry.status);
+    }
+
+    /**
+     * Write the files in parallel, with at most the number of permits written at the same time
+     * @param photos the uploaded photos
+     * @return the paths of the files, in the order of the photos
+     * @throws IOException if a file can't be written
+     */
+    private List<String> writeFiles(List<MultipartFile> photos) throws IOException {
+        List<Future<String>> writes = new ArrayList<>(photos.size());
+        for (MultipartFile photo : photos) {
+            writes.add(workers.submit(() -> {
+                writePermits.acquire();
+                try {
+                    return photoAntiquityService.saveFile(photo);
+                } finally {
+                    writePermits.release();
+                }
+            }));
+        }
+
+        List<String> paths = new ArrayList<>(photos.size());
+        IOException failure = null;
+        for (Future<String> write : writes) {
+            try {
+                paths.add(write.get());
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) failure = new IOException("Interrupted while writing the pictures", e);
+                // The other writes are cancelled, their results are not read
+                writes.forEach(pending -> pending.cancel(true));
+                break;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return paths;
+    }
+
+    /**
+     * Forget the ingestions finished for longer than the retention
+     */
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        statuses.values().removeIf(entry -> entry.finishedAt != null && now - entry.finishedAt > statusRetention.toNanos());
+    }
+
+    /**
+     * Stop the ingestions when the application stops
+     * @author Zarzycki Alexis
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * A status, with the time the ingestion finished
+     */
+    private static final class Entry {
+
+        private final PhotoIngestionStatus status;
+        private final Long finishedAt;
+
+        private Entry(PhotoIngestionStatus status, Long finishedAt) {
+            this.status = status;
+            this.finishedAt = finishedAt;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import be.anticair.anticairapi.Class.PhotoAntiquity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Move the photos saved directly in {@code uploads/} to the directories by digest of {@link PhotoStorage}, while the
+ * application is running. It is started once by setting {@code photo.storage.migrate-layout=true}, and can be
+ * started again: only the photos still in the old layout are moved.
+ *
+ * <p>Each file is hashed and linked under its new name with its smaller versions, then the path of its photos is
+ * changed in a short transaction. The old file isn't deleted at once: the pages already displayed still use it,
+ * it is deleted by the garbage collection of {@link PhotoStorage} like any file no photo uses anymore.</p>
+ * @author Zarzycki Alexis
+ */
+@Component
+public class PhotoLayoutMigrator implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoLayoutMigrator.class);
+
+    /**
+     * The paths in the old layout (without directory after /uploads/), by blocks, after the last path handled
+     */
+    private static final String SELECT_OLD_PATHS =
+            "SELECT DISTINCT path_photo FROM photo_antiquity " +
+            "WHERE path_photo LIKE '/uploads/%' AND path_photo NOT LIKE '/uploads/%/%' AND path_photo > ? " +
+            "ORDER BY path_photo LIMIT ?";
+
+    private final PhotoStorage photoStorage;
+
+    private final PhotoDerivativeService photoDerivativeService;
+
+    private final PhotoAntiquityRepository photoAntiquityRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    public PhotoLayoutMigrator(PhotoStorage photoStorage, PhotoDerivativeService photoDerivativeService,
+                               PhotoAntiquityRepository photoAntiquityRepository, ApplicationEventPublisher eventPublisher,
+                               DataSource dataSource, PlatformTransactionManager transactionManager,
+                               @Value("${photo.storage.migrate-layout:false}") boolean enabled,
+                               @Value("${photo.storage.migrate-layout-batch-size:200}") int batchSize) {
+        this.photoStorage = photoStorage;
+        this.photoDerivativeService = photoDerivativeService;
+        this.photoAntiquityRepository = photoAntiquityRepository;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Start the migration in the background when it is enabled, the application starts without waiting for it
+     * @param args the arguments of the application
+     * @author Zarzycki Alexis
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) return;
+        Thread.ofVirtual().name("photo-layout-migrator").start(() -> {
+            try {
+                this.migrate();
+            } catch (RuntimeException e) {
+                logger.error("Migration of the pictures stopped, it can be started again", e);
+            }
+        });
+    }
+
+    /**
+     * Move all the photos in the old layout
+     * @return the number of files moved
+     * @author Zarzycki Alexis
+     */
+    public int migrate() {
+        logger.info("Migration of the pictures to the directories by digest started");
+        int moved = 0;
+        int failed = 0;
+        String last = "";
+        List<String> paths;
+        do {
+            paths = jdbcTemplate.queryForList(SELECT_OLD_PATHS, String.class, last, batchSize);
+            int batchMoved = this.migratePaths(paths);
+            moved += batchMoved;
+            failed += paths.size() - batchMoved;
+            if (!paths.isEmpty()) last = paths.get(paths.size() - 1);
+        } while (paths.size() == batchSize);
+        logger.info("Migration of the pictures finished: {} moved, {} failed", moved, failed);
+        return moved;
+    }
+
+    /**
+     * Move some photos in the old layout
+     * @param oldPaths the paths in the old layout
+     * @return the number of files moved, the others are logged
+     * @author Zarzycki Alexis
+     */
+    public int migratePaths(List<String> oldPaths) {
+        int moved = 0;
+        for (String oldPath : oldPaths) {
+            if (this.migrate(oldPath)) moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * Move the file of a path, then change the path of its photos
+     * @param oldPath the path in the old layout
+     * @return true if the photos use the new path
+     */
+    private boolean migrate(String oldPath) {
+        if (!Files.exists(photoStorage.toFile(oldPath))) {
+            logger.warn("Picture {} not found, its photos are not migrated", oldPath);
+            return false;
+        }
+        try {
+            String newPath = photoStorage.storeExisting(oldPath);
+            for (int width : photoDerivativeService.getWidths()) {
+                Path variant = photoStorage.toFile(PhotoAntiquity.variantPath(oldPath, width));
+                if (Files.exists(variant)) {
+                    photoStorage.link(variant, photoStorage.toFile(PhotoAntiquity.variantPath(newPath, width)));
+                }
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Integer> idAntiquities = photoAntiquityRepository.findIdAntiquityByPathPhoto(oldPath);
+                photoAntiquityRepository.updatePathPhoto(oldPath, newPath);
+                // The listings are displayed again with the new paths
+                idAntiquities.forEach(idAntiquity -> eventPublisher.publishEvent(new ListingChangedEvent(idAntiquity)));
+            });
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error with the migration of the picture {} : {}", oldPath, e.getMessage());
+            return false;
+        }
+    }
+}
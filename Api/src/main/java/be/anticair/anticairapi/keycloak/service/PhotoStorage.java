@@ -0,0 +1,317 @@
+package be.anticair.anticairapi.keycloak.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Storage of the files of the photos, named by the SHA-256 of their content.
+ *
+ * <p>The digest is computed while the upload is copied to a temporary file, which is then moved to its final name,
+ * in a directory given by the first digits of the digest ({@code uploads/ab/cd/abcd...ef.jpg}).
+ * When a file with this name already exists, the same image was already uploaded and the copy is just dropped: the
+ * bytes are kept once, whatever the number of listings or edits using them.</p>
+ *
+ * <p>The number of photos using each file is counted in the table {@code photo_blob} by a trigger on
+ * {@code photo_antiquity}. The files no photo has used for {@code photo.storage.gc-grace} are deleted with their
+ * smaller versions every {@code photo.storage.gc-interval} (0 to disable it). The row of a file is locked while it is deleted, and a
+ * file is marked as used in the table before being placed, so an upload of the same image at this moment waits for
+ * the deletion and writes the file again.</p>
+ * @author Zarzycki Alexis
+ */
+@Service
+public class PhotoStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoStorage.class);
+
+    /**
+     * Prefix of the paths of the files, which is also their URL
+     */
+    public static final String URL_PREFIX = "/uploads/";
+
+    /**
+     * The directory of the files, served at {@link #URL_PREFIX}
+     */
+    public static final Path DIRECTORY = Path.of(System.getProperty("user.dir"), "uploads");
+
+    private static final Pattern SHARDED_PATH =
+            Pattern.compile("/uploads/[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}(_w[0-9]+)?(\\.[a-z0-9]+)?");
+
+    private static final String MARK_USED =
+            "INSERT INTO photo_blob (path, ref_count, last_used_at) VALUES (?, 0, now()) " +
+            "ON CONFLICT (path) DO UPDATE SET last_used_at = now()";
+
+    private static final String SELECT_UNUSED =
+            "SELECT path FROM photo_blob WHERE ref_count = 0 AND last_used_at < now() - ? * interval '1 second' " +
+            "ORDER BY last_used_at LIMIT ?";
+
+    private static final String DELETE_UNUSED =
+            "DELETE FROM photo_blob WHERE path = ? AND ref_count = 0 AND last_used_at < now() - ? * interval '1 second'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final PhotoDerivativeService photoDerivativeService;
+
+    private final Duration gcInterval;
+
+    private final Duration gcGrace;
+
+    private final int gcBatchSize;
+
+    /**
+     * The thread of the garbage collection, null while it isn't started
+     */
+    private ScheduledExecutorService scheduler;
+
+    public PhotoStorage(DataSource dataSource, PlatformTransactionManager transactionManager,
+                        PhotoDerivativeService photoDerivativeService,
+                        @Value("${photo.storage.gc-interval:1h}") Duration gcInterval,
+                        @Value("${photo.storage.gc-grace:1h}") Duration gcGrace,
+                        @Value("${photo.storage.gc-batch-size:500}") int gcBatchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // Out of the transaction of the caller: the mark must be visible to the garbage collection at once
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.photoDerivativeService = photoDerivativeService;
+        this.gcInterval = gcInterval;
+        this.gcGrace = gcGrace;
+        this.gcBatchSize = gcBatchSize;
+    }
+
+    /**
+     * Start the garbage collection once the application is built, unless its interval is 0
+     * @author Zarzycki Alexis
+     */
+    @PostConstruct
+    public void start() {
+        if (gcInterval.isZero() || gcInterval.isNegative()) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("photo-storage-gc").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::collectGarbageSafely, gcInterval.toMillis(), gcInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Store an uploaded file, named by the SHA-256 of its content and its extension
+     *
+     * @param file the uploaded file
+     * @return the path of the file, for example /uploads/9f/86/9f86d08...b0f00a08.jpg
+     * @throws IOException if the file is empty or can't be written
+     * @author Zarzycki Alexis
+     */
+    public String store(MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new IOException("The file is empty!");
+        }
+        Files.createDirectories(DIRECTORY);
+
+        // On the same file system, so the file is moved without being copied again
+        Path temporary = Files.createTempFile(DIRECTORY, ".upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream content = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(content, temporary, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String path = pathOf(digest, extensionOf(file.getOriginalFilename()));
+            Path target = this.reserve(path);
+            if (target != null) {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return path;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Store a file already in the directory of the uploads under its name from the content, the file itself
+     * is kept (see {@link PhotoLayoutMigrator})
+     *
+     * @param path the path of the file
+     * @return the path of the file named by its content
+     * @throws IOException if the file can't be read or the new file can't be written
+     * @author Zarzycki Alexis
+     */
+    public String storeExisting(String path) throws IOException {
+        Path source = this.toFile(path);
+        MessageDigest digest = sha256();
+        try (InputStream content = new DigestInputStream(Files.newInputStream(source), digest)) {
+            content.transferTo(OutputStream.nullOutputStream());
+        }
+        String newPath = pathOf(digest, extensionOf(source.getFileName().toString()));
+        Path target = this.reserve(newPath);
+        if (target != null) {
+            this.link(source, target);
+        }
+        return newPath;
+    }
+
+    /**
+     * Mark a file as used then prepare its directory
+     * @param path the path of the file
+     * @return the file to write, null if it is already on the disk
+     */
+    private Path reserve(String path) throws IOException {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(MARK_USED, path));
+        Path target = this.toFile(path);
+        if (Files.exists(target)) return null;
+        Files.createDirectories(target.getParent());
+        return target;
+    }
+
+    /**
+     * Give a second name to a file, without copying it when the file system supports the hard links
+     * @param source the file
+     * @param target the new name, ignored if it already exists
+     * @throws IOException if the file can't be linked nor copied
+     * @author Zarzycki Alexis
+     */
+    public void link(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+            // Made by another upload of the same content
+        } catch (UnsupportedOperationException | IOException e) {
+            Path temporary = Files.createTempFile(DIRECTORY, ".upload-", ".tmp");
+            try {
+                Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Delete the files no photo has used for longer than the grace period, with their smaller versions
+     *
+     * @return the number of files deleted
+     * @author Zarzycki Alexis
+     */
+    public int collectGarbage() {
+        long graceSeconds = gcGrace.toSeconds();
+        List<String> unused = jdbcTemplate.queryForList(SELECT_UNUSED, String.class, graceSeconds, gcBatchSize);
+        int deleted = 0;
+        for (String path : unused) {
+            try {
+                Boolean done = transactionTemplate.execute(status -> {
+                    // The row stays locked until the files are deleted, a new upload of the same image waits for it
+                    if (jdbcTemplate.update(DELETE_UNUSED, path, graceSeconds) == 0) return false;
+                    try {
+                        Files.deleteIfExists(this.toFile(path));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    photoDerivativeService.deleteVariants(path);
+                    return true;
+                });
+                if (Boolean.TRUE.equals(done)) deleted++;
+            } catch (RuntimeException e) {
+                // The row is kept, the file will be deleted at the next collection
+                logger.warn("Error with the deletion of the picture {}", path, e);
+            }
+        }
+        return deleted;
+    }
+
+    private void collectGarbageSafely() {
+        try {
+            this.collectGarbage();
+        } catch (RuntimeException e) {
+            logger.error("Error with the collection of the unused pictures", e);
+        }
+    }
+
+    /**
+     * The path of a file from its digest: the first two pairs of hexadecimal digits give two levels of directories,
+     * so no directory holds more than a few hundred entries (256 x 256 directories)
+     * @param digest the digest of the content
+     * @param extension the extension of the file, with its dot
+     * @return the path of the file, for example /uploads/9f/86/9f86d08...b0f00a08.jpg
+     */
+    private static String pathOf(MessageDigest digest, String extension) {
+        String hash = HexFormat.of().formatHex(digest.digest());
+        return URL_PREFIX + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+    }
+
+    /**
+     * Know if a path is in the layout of the directories by digest, for a photo or one of its smaller versions.
+     * The content of such a file never changes: another content gets another name.
+     * @param path the path of a file
+     * @return true if the file is in its directory, false for the files saved before (directly in /uploads/)
+     * @author Zarzycki Alexis
+     */
+    public static boolean isSharded(String path) {
+        return SHARDED_PATH.matcher(path).matches();
+    }
+
+    /**
+     * The file of a path given by {@link #store(MultipartFile)}
+     * @param path the path of the file
+     * @return the file on the disk
+     * @author Zarzycki Alexis
+     */
+    public Path toFile(String path) {
+        return DIRECTORY.resolve(path.substring(URL_PREFIX.length()));
+    }
+
+    /**
+     * The extension of the name of an uploaded file, in lower case so the same image gets the same name
+     */
+    private static String extensionOf(String originalFileName) {
+        if (originalFileName == null) return "";
+        int dotIndex = originalFileName.lastIndexOf('.');
+        if (dotIndex <= 0 || dotIndex == originalFileName.length() - 1) return "";
+        String extension = originalFileName.substring(dotIndex).toLowerCase(Locale.ROOT);
+        // Only ASCII letters and digits, the extension is part of a path
+        return extension.substring(1).chars().allMatch(c -> (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stop the garbage collection when the application stops
+     * @author Zarzycki Alexis
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
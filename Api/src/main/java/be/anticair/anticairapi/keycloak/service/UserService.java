@@ -1,6 +1,7 @@
 package be.anticair.anticairapi.keycloak.service;
 
 import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.Money;
 import be.anticair.anticairapi.enumeration.TypeOfMail;
 import jakarta.mail.MessagingException;
 import jakarta.ws.rs.NotFoundException;
@@ -13,8 +14,6 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -336,7 +335,7 @@ public class UserService {
             }
             otherInformation.put("title",listing.getTitleAntiquity());
             otherInformation.put("description",listing.getDescriptionAntiquity());
-            otherInformation.put("price", listing.getPriceAntiquity().toString());
+            otherInformation.put("price", Money.toString(listing.getPrice()));
             this.emailService.sendHtmlEmail(allAntiquarian.get(randomUser).getEmail(), sender, TypeOfMail.REDISTRIBUTEANTIQUITYNEWANTIQUARIAN,otherInformation);
         }
 
@@ -454,6 +453,16 @@ public class UserService {
         }
     }
 
+    /**
+     * Add a specified amount to a user's balance.
+     * @param userEmail the email of the user to update the balance.
+     * @param amount the amount to add to the user's balance.
+     * @author Zarzycki Alexis
+     */
+    public void addToUserBalance(String userEmail, Money amount) {
+        this.addToUserBalance(userEmail, amount.toDouble());
+    }
+
     /**
      * Add a specified amount to a user's balance.
      * @param userEmail the email of the user to update the balance.
@@ -482,13 +491,11 @@ public class UserService {
             Map<String, List<String>> attributes = user.getAttributes();
             double currentBalance = getUserBalance(userEmail);
 
-            // Calculate the new balance
-            double newBalance = currentBalance + amount;
+            // Calculate the new balance, in cents
+            Money newBalance = Money.of(currentBalance).plus(Money.of(amount));
 
-            // Format the new balance to ensure it's in the correct format (with two decimal places)
-            DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);  // Force dot separator
-            DecimalFormat df = new DecimalFormat("#.00", symbols);  // Always two decimal places
-            String formattedBalance = df.format(newBalance);
+            // The new balance is written with two decimal places and a dot
+            String formattedBalance = newBalance.toString();
 
             // Update the user's attributes with the new balance
             if (attributes == null) {
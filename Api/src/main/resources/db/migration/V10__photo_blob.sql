@@ -0,0 +1,63 @@
+-- The files of the photos are named by the SHA-256 of their content (PhotoStorage): the same image uploaded again,
+-- for the same listing or another one, is kept once on the disk and several photos can share its path.
+--
+-- photo_blob counts the photos using each file. It is maintained by a trigger on photo_antiquity, and a file is
+-- deleted by the garbage collection of PhotoStorage only when no photo has used it for some time. last_used_at is
+-- also set when a file is stored, so a file just uploaded isn't collected before its photo is inserted.
+
+CREATE TABLE IF NOT EXISTS photo_blob (
+    path         varchar(255) PRIMARY KEY,
+    ref_count    bigint       NOT NULL DEFAULT 0,
+    last_used_at timestamptz  NOT NULL DEFAULT now()
+);
+
+-- Finds the files to collect
+CREATE INDEX IF NOT EXISTS idx_photo_blob_unused ON photo_blob (last_used_at) WHERE ref_count = 0;
+
+INSERT INTO photo_blob (path, ref_count)
+SELECT path_photo, count(*) FROM photo_antiquity GROUP BY path_photo
+ON CONFLICT (path) DO NOTHING;
+
+-- Several photos can now have the same path. The name of the constraint depends on the tool which created
+-- the table (V1 or the former ddl-auto), so every unique constraint on path_photo alone is dropped.
+DO $$
+DECLARE
+    constraint_name text;
+BEGIN
+    FOR constraint_name IN
+        SELECT c.conname FROM pg_constraint c
+        JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = ANY (c.conkey)
+        WHERE c.conrelid = 'photo_antiquity'::regclass AND c.contype = 'u'
+          AND array_length(c.conkey, 1) = 1 AND a.attname = 'path_photo'
+    LOOP
+        EXECUTE format('ALTER TABLE photo_antiquity DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+END $$;
+
+CREATE INDEX IF NOT EXISTS idx_photo_antiquity_path ON photo_antiquity (path_photo);
+
+CREATE OR REPLACE FUNCTION photo_blob_count(p_path varchar, p_delta integer) RETURNS void AS $$
+BEGIN
+    INSERT INTO photo_blob (path, ref_count, last_used_at) VALUES (p_path, GREATEST(p_delta, 0), now())
+    ON CONFLICT (path) DO UPDATE
+    SET ref_count = GREATEST(photo_blob.ref_count + p_delta, 0), last_used_at = now();
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION photo_antiquity_maintain_blob() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM photo_blob_count(OLD.path_photo, -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM photo_blob_count(NEW.path_photo, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_photo_antiquity_blob ON photo_antiquity;
+CREATE TRIGGER trg_photo_antiquity_blob
+    AFTER INSERT OR DELETE OR UPDATE OF path_photo ON photo_antiquity
+    FOR EACH ROW
+    EXECUTE FUNCTION photo_antiquity_maintain_blob();
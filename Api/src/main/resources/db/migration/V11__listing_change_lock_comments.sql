@@ -0,0 +1,23 @@
+-- Why the triggers of V4 (change feed) and V7/V8 (statistics) take one advisory lock for the whole table, kept in
+-- the catalog next to the functions (the migrations already applied can't be modified, Flyway checks them).
+--
+-- The lock isn't held during the transactions: the triggers are deferred, so it is taken at the commit, after every
+-- statement of the transaction, and released by the commit. Only the end of the commits of the writes on the
+-- listings and their photos is serialized, the reads never take it.
+--
+-- A lock by listing or by state isn't enough for the change feed: the positions are read in their order by all the
+-- clients, so a position must not become visible before a smaller one given to another listing. With one lock, the
+-- positions are given in the order of the commits.
+--
+-- The statistics reuse this lock instead of locking the rows of listing_state_stats and listing_antiquarian_backlog
+-- in their own order: a transaction moving several listings between states would lock the rows of the states in
+-- the order of its listings and could deadlock with another one. Under the lock of the change feed, already taken
+-- at the same moment by the same writes, they add no wait.
+
+COMMENT ON FUNCTION antiquity_touch_change_seq() IS
+    'Gives the listing a new position in the change feed at the commit. Takes the global advisory lock '
+    'hashtext(''listing_change_seq'') so the positions become visible in their order (see V11).';
+
+COMMENT ON FUNCTION antiquity_maintain_stats() IS
+    'Updates the statistics of the catalog at the commit, under the advisory lock of the change feed, '
+    'so the writers never deadlock on the rows of the states (see V11).';
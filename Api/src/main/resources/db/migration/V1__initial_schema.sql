@@ -0,0 +1,18 @@
+-- Schema created until now by Hibernate (spring.jpa.hibernate.ddl-auto=update).
+-- An existing database is baselined at this version, so this script only runs on an empty database.
+CREATE TABLE IF NOT EXISTS antiquity (
+    id_antiquity          integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    price_antiquity       float(53),
+    description_antiquity varchar(255),
+    title_antiquity       varchar(255),
+    mail_antiquarian      varchar(255),
+    state                 integer,
+    is_display            boolean,
+    mail_seller           varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS photo_antiquity (
+    id_photo     integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    path_photo   varchar(255) NOT NULL UNIQUE,
+    id_antiquity integer      NOT NULL
+);
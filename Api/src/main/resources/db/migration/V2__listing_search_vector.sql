@@ -0,0 +1,9 @@
+-- Full-text search on the title and the description of the antiquities.
+-- The title weighs more than the description in the ranking.
+ALTER TABLE antiquity ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(title_antiquity, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(description_antiquity, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_antiquity_search_vector ON antiquity USING GIN (search_vector);
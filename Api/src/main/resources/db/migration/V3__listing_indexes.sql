@@ -0,0 +1,15 @@
+-- Indexes matching the queries of ListingRepository and PhotoAntiquityRepository.
+
+-- Review queue of an antiquarian: findByStateInAndMailAntiquarian, getSummariesByStateInAndMailAntiquarian,
+-- getAllAntiquityNotCheckedFromAnAntiquarian
+CREATE INDEX IF NOT EXISTS idx_antiquity_mail_antiquarian_state ON antiquity (mail_antiquarian, state);
+
+-- Listings displayed of a seller: getAllAntiquityDisplayByMailSeller, getAllAntiquityDisplaySummariesByMailSeller
+CREATE INDEX IF NOT EXISTS idx_antiquity_mail_seller_displayed ON antiquity (mail_seller, id_antiquity) WHERE is_display = true;
+
+-- Accepted catalog, read in the order of the id (keyset pagination, export): only the accepted rows are indexed
+CREATE INDEX IF NOT EXISTS idx_antiquity_accepted ON antiquity (id_antiquity) WHERE state = 1;
+
+-- Photos of one or several antiquities: findByIdAntiquity, findPathByIdAntiquity, deleteByIdAntiquity,
+-- findByIdAntiquityInOrderByIdAntiquityAscIdPhotoAsc
+CREATE INDEX IF NOT EXISTS idx_photo_antiquity_id_antiquity ON photo_antiquity (id_antiquity, id_photo);
@@ -0,0 +1,49 @@
+-- Change feed of the listings (/api/listing/changes): every write on a listing or on its photos gives the listing
+-- a new position in the sequence listing_change_seq.
+--
+-- The position is given when the transaction commits (deferred constraint triggers), under a transaction-level
+-- advisory lock held until the commit is visible. So the positions become visible in their order, and a client
+-- reading the feed from its last position can't miss a change committed later with a smaller position.
+
+CREATE SEQUENCE IF NOT EXISTS listing_change_seq;
+
+ALTER TABLE antiquity ADD COLUMN IF NOT EXISTS change_seq bigint;
+-- The existing listings get their positions in the order of their ids
+UPDATE antiquity a SET change_seq = s.seq
+FROM (SELECT o.id_antiquity, nextval('listing_change_seq') AS seq
+      FROM (SELECT id_antiquity FROM antiquity WHERE change_seq IS NULL ORDER BY id_antiquity) o) s
+WHERE a.id_antiquity = s.id_antiquity;
+ALTER TABLE antiquity ALTER COLUMN change_seq SET DEFAULT nextval('listing_change_seq');
+ALTER TABLE antiquity ALTER COLUMN change_seq SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_antiquity_change_seq ON antiquity (change_seq);
+
+CREATE OR REPLACE FUNCTION antiquity_touch_change_seq() RETURNS trigger AS $$
+DECLARE
+    target integer;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        target := OLD.id_antiquity;
+    ELSE
+        target := NEW.id_antiquity;
+    END IF;
+    PERFORM pg_advisory_xact_lock(hashtext('listing_change_seq'));
+    UPDATE antiquity SET change_seq = nextval('listing_change_seq') WHERE id_antiquity = target;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The update made by the function itself must not fire the trigger again
+DROP TRIGGER IF EXISTS trg_antiquity_change_seq ON antiquity;
+CREATE CONSTRAINT TRIGGER trg_antiquity_change_seq
+    AFTER INSERT OR UPDATE ON antiquity
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW WHEN (pg_trigger_depth() < 1)
+    EXECUTE FUNCTION antiquity_touch_change_seq();
+
+DROP TRIGGER IF EXISTS trg_photo_antiquity_change_seq ON photo_antiquity;
+CREATE CONSTRAINT TRIGGER trg_photo_antiquity_change_seq
+    AFTER INSERT OR UPDATE OR DELETE ON photo_antiquity
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW
+    EXECUTE FUNCTION antiquity_touch_change_seq();
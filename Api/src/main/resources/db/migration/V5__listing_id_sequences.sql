@@ -0,0 +1,15 @@
+-- The ids are given by sequences instead of identity columns, so Hibernate can send the inserts in batches.
+-- Hibernate takes 50 ids at each call of the sequence (pooled optimizer, allocationSize = 50 on the entities),
+-- so the sequences are incremented by 50 and start after the existing ids.
+
+CREATE SEQUENCE IF NOT EXISTS antiquity_seq INCREMENT BY 50;
+SELECT setval('antiquity_seq', COALESCE(MAX(id_antiquity), 0) + 50, false) FROM antiquity;
+ALTER TABLE antiquity ALTER COLUMN id_antiquity DROP IDENTITY IF EXISTS;
+ALTER TABLE antiquity ALTER COLUMN id_antiquity SET DEFAULT nextval('antiquity_seq');
+ALTER SEQUENCE antiquity_seq OWNED BY antiquity.id_antiquity;
+
+CREATE SEQUENCE IF NOT EXISTS photo_antiquity_seq INCREMENT BY 50;
+SELECT setval('photo_antiquity_seq', COALESCE(MAX(id_photo), 0) + 50, false) FROM photo_antiquity;
+ALTER TABLE photo_antiquity ALTER COLUMN id_photo DROP IDENTITY IF EXISTS;
+ALTER TABLE photo_antiquity ALTER COLUMN id_photo SET DEFAULT nextval('photo_antiquity_seq');
+ALTER SEQUENCE photo_antiquity_seq OWNED BY photo_antiquity.id_photo;
@@ -0,0 +1,2 @@
+-- Version of the listings for the optimistic locking (@Version on Listing)
+ALTER TABLE antiquity ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
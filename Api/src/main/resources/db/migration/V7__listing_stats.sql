@@ -0,0 +1,105 @@
+-- Statistics of the catalog (/api/listing/stats), maintained by triggers instead of being computed by full scans:
+-- the number of listings and the price aggregates by state, and the number of listings waiting for the review
+-- of each antiquarian (state 0 or 2).
+--
+-- The tables are updated at the commit (deferred constraint triggers), under the advisory lock of the change feed
+-- (V4): the writers update them one after the other, so they can't deadlock on the rows of the states.
+
+CREATE TABLE IF NOT EXISTS listing_state_stats (
+    state         integer PRIMARY KEY,
+    listing_count bigint  NOT NULL DEFAULT 0,
+    -- Number of listings with a price, the divisor of the average
+    price_count   bigint  NOT NULL DEFAULT 0,
+    price_sum     numeric NOT NULL DEFAULT 0,
+    price_min     float(53),
+    price_max     float(53)
+);
+
+CREATE TABLE IF NOT EXISTS listing_antiquarian_backlog (
+    mail_antiquarian varchar(255) PRIMARY KEY,
+    backlog          bigint NOT NULL DEFAULT 0
+);
+
+-- Finds again the minimum or the maximum of a state when the listing holding it leaves the state
+CREATE INDEX IF NOT EXISTS idx_antiquity_state_price ON antiquity (state, price_antiquity);
+
+INSERT INTO listing_state_stats (state, listing_count, price_count, price_sum, price_min, price_max)
+SELECT state, count(*), count(price_antiquity), COALESCE(sum(price_antiquity::numeric), 0), min(price_antiquity), max(price_antiquity)
+FROM antiquity WHERE state IS NOT NULL GROUP BY state
+ON CONFLICT (state) DO NOTHING;
+
+INSERT INTO listing_antiquarian_backlog (mail_antiquarian, backlog)
+SELECT mail_antiquarian, count(*)
+FROM antiquity WHERE state IN (0, 2) AND mail_antiquarian IS NOT NULL GROUP BY mail_antiquarian
+ON CONFLICT (mail_antiquarian) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION listing_stats_remove(p_state integer, p_price float(53), p_mail varchar) RETURNS void AS $$
+BEGIN
+    IF p_state IS NOT NULL THEN
+        UPDATE listing_state_stats
+        SET listing_count = listing_count - 1,
+            price_count   = price_count - CASE WHEN p_price IS NULL THEN 0 ELSE 1 END,
+            price_sum     = price_sum - COALESCE(p_price::numeric, 0)
+        WHERE state = p_state;
+        -- Only the removal of the minimum or the maximum needs a lookup, done with idx_antiquity_state_price
+        IF p_price IS NOT NULL THEN
+            UPDATE listing_state_stats s
+            SET price_min = (SELECT min(price_antiquity) FROM antiquity WHERE state = p_state),
+                price_max = (SELECT max(price_antiquity) FROM antiquity WHERE state = p_state)
+            WHERE s.state = p_state AND (p_price <= s.price_min OR p_price >= s.price_max);
+        END IF;
+    END IF;
+    IF p_state IN (0, 2) AND p_mail IS NOT NULL THEN
+        UPDATE listing_antiquarian_backlog SET backlog = backlog - 1 WHERE mail_antiquarian = p_mail;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION listing_stats_add(p_state integer, p_price float(53), p_mail varchar) RETURNS void AS $$
+BEGIN
+    IF p_state IS NOT NULL THEN
+        INSERT INTO listing_state_stats AS s (state, listing_count, price_count, price_sum, price_min, price_max)
+        VALUES (p_state, 1, CASE WHEN p_price IS NULL THEN 0 ELSE 1 END, COALESCE(p_price::numeric, 0), p_price, p_price)
+        ON CONFLICT (state) DO UPDATE
+        SET listing_count = s.listing_count + 1,
+            price_count   = s.price_count + EXCLUDED.price_count,
+            price_sum     = s.price_sum + EXCLUDED.price_sum,
+            price_min     = LEAST(s.price_min, EXCLUDED.price_min),
+            price_max     = GREATEST(s.price_max, EXCLUDED.price_max);
+    END IF;
+    IF p_state IN (0, 2) AND p_mail IS NOT NULL THEN
+        INSERT INTO listing_antiquarian_backlog AS b (mail_antiquarian, backlog) VALUES (p_mail, 1)
+        ON CONFLICT (mail_antiquarian) DO UPDATE SET backlog = b.backlog + 1;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION antiquity_maintain_stats() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('listing_change_seq'));
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM listing_stats_remove(OLD.state, OLD.price_antiquity, OLD.mail_antiquarian);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM listing_stats_add(NEW.state, NEW.price_antiquity, NEW.mail_antiquarian);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_antiquity_stats ON antiquity;
+CREATE CONSTRAINT TRIGGER trg_antiquity_stats
+    AFTER INSERT OR DELETE ON antiquity
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW
+    EXECUTE FUNCTION antiquity_maintain_stats();
+
+-- The updates which don't change the statistics (for example the position in the change feed) are ignored
+DROP TRIGGER IF EXISTS trg_antiquity_stats_update ON antiquity;
+CREATE CONSTRAINT TRIGGER trg_antiquity_stats_update
+    AFTER UPDATE ON antiquity
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW WHEN (OLD.state IS DISTINCT FROM NEW.state
+                       OR OLD.price_antiquity IS DISTINCT FROM NEW.price_antiquity
+                       OR OLD.mail_antiquarian IS DISTINCT FROM NEW.mail_antiquarian)
+    EXECUTE FUNCTION antiquity_maintain_stats();
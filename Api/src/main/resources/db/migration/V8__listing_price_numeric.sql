@@ -0,0 +1,71 @@
+-- The prices are exact amounts in cents (Money in the application): the column becomes numeric(12,2),
+-- the existing prices are rounded to the cent.
+
+-- A column used by the condition of a trigger can't change of type, the trigger is created again below
+DROP TRIGGER IF EXISTS trg_antiquity_stats_update ON antiquity;
+
+ALTER TABLE antiquity ALTER COLUMN price_antiquity TYPE numeric(12,2) USING round(price_antiquity::numeric, 2);
+
+ALTER TABLE listing_state_stats ALTER COLUMN price_min TYPE numeric(12,2) USING round(price_min::numeric, 2);
+ALTER TABLE listing_state_stats ALTER COLUMN price_max TYPE numeric(12,2) USING round(price_max::numeric, 2);
+
+-- The functions of V7 take the price as numeric from now on
+DROP FUNCTION IF EXISTS listing_stats_remove(integer, float(53), varchar);
+DROP FUNCTION IF EXISTS listing_stats_add(integer, float(53), varchar);
+
+CREATE OR REPLACE FUNCTION listing_stats_remove(p_state integer, p_price numeric, p_mail varchar) RETURNS void AS $$
+BEGIN
+    IF p_state IS NOT NULL THEN
+        UPDATE listing_state_stats
+        SET listing_count = listing_count - 1,
+            price_count   = price_count - CASE WHEN p_price IS NULL THEN 0 ELSE 1 END,
+            price_sum     = price_sum - COALESCE(p_price, 0)
+        WHERE state = p_state;
+        -- Only the removal of the minimum or the maximum needs a lookup, done with idx_antiquity_state_price
+        IF p_price IS NOT NULL THEN
+            UPDATE listing_state_stats s
+            SET price_min = (SELECT min(price_antiquity) FROM antiquity WHERE state = p_state),
+                price_max = (SELECT max(price_antiquity) FROM antiquity WHERE state = p_state)
+            WHERE s.state = p_state AND (p_price <= s.price_min OR p_price >= s.price_max);
+        END IF;
+    END IF;
+    IF p_state IN (0, 2) AND p_mail IS NOT NULL THEN
+        UPDATE listing_antiquarian_backlog SET backlog = backlog - 1 WHERE mail_antiquarian = p_mail;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION listing_stats_add(p_state integer, p_price numeric, p_mail varchar) RETURNS void AS $$
+BEGIN
+    IF p_state IS NOT NULL THEN
+        INSERT INTO listing_state_stats AS s (state, listing_count, price_count, price_sum, price_min, price_max)
+        VALUES (p_state, 1, CASE WHEN p_price IS NULL THEN 0 ELSE 1 END, COALESCE(p_price, 0), p_price, p_price)
+        ON CONFLICT (state) DO UPDATE
+        SET listing_count = s.listing_count + 1,
+            price_count   = s.price_count + EXCLUDED.price_count,
+            price_sum     = s.price_sum + EXCLUDED.price_sum,
+            price_min     = LEAST(s.price_min, EXCLUDED.price_min),
+            price_max     = GREATEST(s.price_max, EXCLUDED.price_max);
+    END IF;
+    IF p_state IN (0, 2) AND p_mail IS NOT NULL THEN
+        INSERT INTO listing_antiquarian_backlog AS b (mail_antiquarian, backlog) VALUES (p_mail, 1)
+        ON CONFLICT (mail_antiquarian) DO UPDATE SET backlog = b.backlog + 1;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The sums follow the rounded prices
+UPDATE listing_state_stats s
+SET price_count = a.price_count, price_sum = a.price_sum, price_min = a.price_min, price_max = a.price_max
+FROM (SELECT state, count(price_antiquity) AS price_count, COALESCE(sum(price_antiquity), 0) AS price_sum,
+             min(price_antiquity) AS price_min, max(price_antiquity) AS price_max
+      FROM antiquity WHERE state IS NOT NULL GROUP BY state) a
+WHERE s.state = a.state;
+
+CREATE CONSTRAINT TRIGGER trg_antiquity_stats_update
+    AFTER UPDATE ON antiquity
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW WHEN (OLD.state IS DISTINCT FROM NEW.state
+                       OR OLD.price_antiquity IS DISTINCT FROM NEW.price_antiquity
+                       OR OLD.mail_antiquarian IS DISTINCT FROM NEW.mail_antiquarian)
+    EXECUTE FUNCTION antiquity_maintain_stats();
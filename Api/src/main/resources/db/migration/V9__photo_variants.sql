@@ -0,0 +1,3 @@
+-- Widths of the smaller versions of each photo (PhotoDerivativeService), separated by commas.
+-- The photos saved before have no versions, the original file is displayed.
+ALTER TABLE photo_antiquity ADD COLUMN IF NOT EXISTS variant_widths varchar(64);
@@ -0,0 +1,50 @@
+package be.anticair.anticairapi.Class;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the opaque cursors of the pages of listings, without Spring
+ * @author Zarzycki Alexis
+ */
+public class ListingCursorTests {
+
+    /**
+     * Test that a cursor gives back the position and the offset it was made from
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("A cursor is decoded to the position it was encoded from")
+    public void roundTrip() {
+        assertEquals(42, ListingCursor.decode(ListingCursor.encode(42)));
+        assertEquals(Long.MAX_VALUE, ListingCursor.decode(ListingCursor.encode(Long.MAX_VALUE)));
+        assertEquals(20, ListingCursor.decodeOffset(ListingCursor.encodeOffset(20)));
+        assertEquals(0, ListingCursor.decode(null), "There is no cursor for the first page");
+        assertEquals(0, ListingCursor.decode(""), "There is no cursor for the first page");
+        assertFalse(ListingCursor.encode(42).contains("42"), "The cursor should be opaque");
+    }
+
+    /**
+     * Test that the cursors not made by the API are refused
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("An invalid cursor is refused")
+    public void invalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> ListingCursor.decode("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> ListingCursor.decode(encodeRaw("42")));
+        assertThrows(IllegalArgumentException.class, () -> ListingCursor.decode(encodeRaw("l:abc")));
+        assertThrows(IllegalArgumentException.class, () -> ListingCursor.decode(encodeRaw("l:-1")));
+        assertThrows(IllegalArgumentException.class, () -> ListingCursor.decode(ListingCursor.encodeOffset(20)));
+        assertThrows(IllegalArgumentException.class, () -> ListingCursor.decodeOffset(ListingCursor.encode(20)));
+    }
+
+    private static String encodeRaw(String content) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
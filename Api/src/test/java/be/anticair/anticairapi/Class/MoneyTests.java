@@ -0,0 +1,63 @@
+package be.anticair.anticairapi.Class;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the amounts in cents and of the commission, without Spring
+ * @author Zarzycki Alexis
+ */
+public class MoneyTests {
+
+    /**
+     * Test the conversion of the decimal values and the writing of the amounts
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Amounts are rounded to the cent and written with two decimals")
+    public void roundingAndFormatting() {
+        assertEquals(101, Money.of(1.005).getCents());
+        assertEquals(12000, Money.parse("120.0").getCents());
+        assertEquals("120.00", Money.of(120.0).toString());
+        assertEquals("0.50", Money.of(0.5).toString());
+        assertEquals("-0.05", Money.ofCents(-5).toString());
+        assertEquals(Money.of(0.1).plus(Money.of(0.2)), Money.of(0.3));
+    }
+
+    /**
+     * Test the commission added to a price, and the split of a price between the seller and the antiquarian
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("The commission is exact and the payout adds up to the price")
+    public void commission() {
+        assertEquals("120.00", Commission.apply(Money.of(100.0)).toString());
+        assertEquals("119.99", Commission.apply(Money.of(99.99)).toString());
+
+        Commission.Payout payout = Commission.payout(Money.of(119.99));
+        assertEquals("99.99", payout.getSeller().toString());
+        assertEquals("20.00", payout.getAntiquarian().toString());
+
+        Commission.Payout uneven = Commission.payout(Money.of(100.0));
+        assertEquals("83.33", uneven.getSeller().toString());
+        assertEquals("16.67", uneven.getAntiquarian().toString());
+        assertEquals(Money.of(100.0), uneven.getSeller().plus(uneven.getAntiquarian()));
+        assertEquals(uneven.getAntiquarian(), Commission.of(Money.of(100.0)));
+    }
+
+    /**
+     * Test that the calculations which don't fit in the cents fail instead of giving a wrong amount
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Amounts too large are refused and a missing amount is written empty")
+    public void overflowAndMissingAmount() {
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE / 2 + 1).multiply(1, 1));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).percent(1));
+        assertEquals("-0.01", Money.ofCents(-1).multiply(1, 2).toString());
+        assertEquals("", Money.toString(null));
+        assertEquals("120.00", Money.toString(Money.of(120.0)));
+    }
+}
@@ -0,0 +1,55 @@
+package be.anticair.anticairapi;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the cache headers of the photos, without Spring
+ * @author Zarzycki Alexis
+ */
+public class PhotoCacheControlFilterTests {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private final PhotoCacheControlFilter filter = new PhotoCacheControlFilter(Duration.ofDays(365));
+
+    /**
+     * Test that the photos named by their content and their smaller versions are immutable
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("The photos named by their content are cached for a year")
+    public void immutablePhotos() throws Exception {
+        for (String path : new String[] {"/uploads/9f/86/" + HASH + ".jpg", "/uploads/9f/86/" + HASH + "_w200.jpg"}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", path), response, new MockFilterChain());
+            assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+        }
+    }
+
+    /**
+     * Test that the photos with a random name and the errors keep no long cache duration
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("The old photos and the errors are not cached for a year")
+    public void otherResponses() throws Exception {
+        MockHttpServletResponse old = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/uploads/0b5c3f9e-7a51-4f4e-9d0a-2f1d6c1e8b7a.jpg"), old, new MockFilterChain());
+        assertNull(old.getHeader("Cache-Control"));
+
+        MockHttpServletResponse missing = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/uploads/9f/86/" + HASH + ".jpg"), missing,
+                (request, response) -> ((HttpServletResponse) response).sendError(HttpServletResponse.SC_NOT_FOUND));
+        assertEquals(404, missing.getStatus());
+        assertEquals("no-store", missing.getHeader("Cache-Control"));
+    }
+}
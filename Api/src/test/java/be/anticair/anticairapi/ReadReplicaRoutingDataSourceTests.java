@@ -0,0 +1,55 @@
+package be.anticair.anticairapi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test of the choice of the database of a transaction, without Spring
+ * @author Zarzycki Alexis
+ */
+public class ReadReplicaRoutingDataSourceTests {
+
+    private final ReplicaLagMonitor lagMonitor = mock(ReplicaLagMonitor.class);
+
+    private final ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(lagMonitor);
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    /**
+     * Test that only the read-only transactions use the replica, so a read-write transaction reads the last commits
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Only the read-only transactions use the replica")
+    public void readOnlyTransactionsOnTheReplica() {
+        when(lagMonitor.isReplicaUsable()).thenReturn(true);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReadReplicaRoutingDataSource.Route.REPLICA, routing.determineCurrentLookupKey());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        assertEquals(ReadReplicaRoutingDataSource.Route.PRIMARY, routing.determineCurrentLookupKey());
+    }
+
+    /**
+     * Test that the read-only transactions go back to the primary while the replica is too late
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("The read-only transactions use the primary while the replica is late")
+    public void lateReplica() {
+        when(lagMonitor.isReplicaUsable()).thenReturn(false);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReadReplicaRoutingDataSource.Route.PRIMARY, routing.determineCurrentLookupKey());
+    }
+}
@@ -0,0 +1,45 @@
+package be.anticair.anticairapi;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test that the schema of the database is the one of the migrations
+ * @author Zarzycki Alexis
+ */
+@SpringBootTest
+public class SchemaMigrationTests {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Test that every migration is applied at the startup, with the indexes used by the queries of the listings
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Apply every migration with the indexes of the listings")
+    void testMigrationsApplied() {
+        assertEquals(0, flyway.info().pending().length, "Every migration should be applied");
+
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename IN ('antiquity', 'photo_antiquity')", String.class);
+        assertTrue(indexes.containsAll(List.of(
+                "idx_antiquity_mail_antiquarian_state",
+                "idx_antiquity_mail_seller_displayed",
+                "idx_antiquity_accepted",
+                "idx_photo_antiquity_id_antiquity",
+                "idx_antiquity_search_vector")), "The indexes of the listings should exist: " + indexes);
+    }
+}
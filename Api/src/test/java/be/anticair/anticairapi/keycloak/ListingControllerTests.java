@@ -0,0 +1,127 @@
+package be.anticair.anticairapi.keycloak;
+
+import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.keycloak.controller.ListingController;
+import be.anticair.anticairapi.keycloak.service.ListingRepository;
+import be.anticair.anticairapi.keycloak.service.ListingService;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the responses of the listing controller
+ * @author Zarzycki Alexis
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.main.allow-bean-definition-overriding=true"
+})
+public class ListingControllerTests {
+
+    /**
+     * The controller
+     */
+    @Autowired
+    private ListingController listingController;
+    /**
+     * The service
+     */
+    @Autowired
+    private ListingService listingService;
+    /**
+     * The repository
+     */
+    @Autowired
+    private ListingRepository listingRepository;
+
+    /**
+     * Test that an invalid cursor gives a bad request with the message of the error
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Refuse an invalid cursor with a message")
+    public void testGetListingsCheckedPage_InvalidCursor() {
+        // Act
+        ResponseEntity<?> response = listingController.getListingsCheckedPage("not a cursor!", null);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(Map.of("message", "Invalid cursor"), response.getBody());
+    }
+
+    /**
+     * Test that a listing isn't sent again while it isn't modified, and is sent again once it is
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Answer not modified while the ETag of a listing is still the current one")
+    public void testGetListingById_ETag() throws MessagingException, IOException {
+        // Arrange
+        Listing listing = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+
+        // Act
+        ResponseEntity<?> first = listingController.getListingById(listing.getIdAntiquity(), requestWithETag(null));
+        String eTag = first.getHeaders().getETag();
+        ResponseEntity<?> notModified = listingController.getListingById(listing.getIdAntiquity(), requestWithETag(eTag));
+        listingService.updateListing(Long.valueOf(listing.getIdAntiquity()),
+                new Listing(0, 120.0, "Updated description", "Updated title", "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+        ResponseEntity<?> modified = listingController.getListingById(listing.getIdAntiquity(), requestWithETag(eTag));
+
+        // Assert
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody(), "The listing should not be sent again");
+        assertEquals(HttpStatus.OK, modified.getStatusCode(), "The modified listing should be sent again");
+        assertNotEquals(eTag, modified.getHeaders().getETag());
+
+        // Clean up
+        this.listingRepository.deleteById(Long.valueOf(listing.getIdAntiquity()));
+    }
+
+    /**
+     * Test that an update of a listing modified since the client read it gives a conflict, and isn't saved
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Answer conflict to the update of a listing modified since it was read")
+    public void testUpdateAntiquity_Conflict() {
+        // Arrange
+        Listing listing = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+        String antiquityJson = "{\"priceAntiquity\": 120.0, \"descriptionAntiquity\": \"Updated description\", \"titleAntiquity\": \"Updated title\", " +
+                "\"mailAntiquarian\": \"test-antiquarian@gmail.com\", \"isDisplay\": true, \"mailSeller\": \"test-user@gmail.com\"}";
+
+        // Act
+        ResponseEntity<Map<String, String>> stale = listingController.updateAntiquityWithPhotos(listing.getIdAntiquity(), antiquityJson, null, listing.getVersion() + 1);
+        ResponseEntity<Map<String, String>> current = listingController.updateAntiquityWithPhotos(listing.getIdAntiquity(), antiquityJson, null, listing.getVersion());
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, stale.getStatusCode());
+        assertNotNull(stale.getBody().get("message"));
+        assertEquals(HttpStatus.OK, current.getStatusCode(), "The update of the last version should be saved");
+        Listing updated = this.listingRepository.findById(Long.valueOf(listing.getIdAntiquity())).orElseThrow();
+        assertEquals(120.0, updated.getPriceAntiquity());
+
+        // Clean up
+        this.listingRepository.delete(updated);
+    }
+
+    private static ServletWebRequest requestWithETag(String eTag) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/listing");
+        if (eTag != null) request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        return new ServletWebRequest(request);
+    }
+}
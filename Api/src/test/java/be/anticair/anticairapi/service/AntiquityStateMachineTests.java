@@ -0,0 +1,104 @@
+package be.anticair.anticairapi.service;
+
+import be.anticair.anticairapi.enumeration.AntiquityAction;
+import be.anticair.anticairapi.enumeration.AntiquityState;
+import be.anticair.anticairapi.enumeration.TypeOfMail;
+import be.anticair.anticairapi.keycloak.service.AntiquityStateMachine;
+import be.anticair.anticairapi.keycloak.service.AntiquityTransition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static be.anticair.anticairapi.enumeration.AntiquityState.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the table of the transitions of the state of an antiquity, without Spring
+ * @author Zarzycki Alexis
+ */
+public class AntiquityStateMachineTests {
+
+    /**
+     * Test the acceptation of a new antiquity and of a modified one
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Accept applies the commission only the first time")
+    public void acceptTransitions() {
+        AntiquityTransition first = AntiquityStateMachine.transition(NEED_TO_BE_CHECKED, AntiquityAction.ACCEPT);
+        assertEquals(ACCEPTED, first.getTarget());
+        assertEquals(TypeOfMail.VALIDATIONOFANANTIQUITY, first.getMail());
+        assertTrue(first.isApplyCommission());
+
+        AntiquityTransition again = AntiquityStateMachine.transition(ACCEPTED_BUT_MODIFIED, AntiquityAction.ACCEPT);
+        assertEquals(ACCEPTED, again.getTarget());
+        assertFalse(again.isApplyCommission());
+
+        assertNull(AntiquityStateMachine.transition(ACCEPTED, AntiquityAction.ACCEPT));
+        assertNull(AntiquityStateMachine.transition(REJECTED, AntiquityAction.ACCEPT));
+        assertNull(AntiquityStateMachine.transition(SOLD, AntiquityAction.ACCEPT));
+    }
+
+    /**
+     * Test the rejection of a new antiquity and of a modified one
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Reject a new antiquity, keep the state of a modified one")
+    public void rejectTransitions() {
+        assertEquals(REJECTED, AntiquityStateMachine.transition(NEED_TO_BE_CHECKED, AntiquityAction.REJECT).getTarget());
+        assertEquals(ACCEPTED_BUT_MODIFIED, AntiquityStateMachine.transition(ACCEPTED_BUT_MODIFIED, AntiquityAction.REJECT).getTarget());
+        assertEquals(TypeOfMail.REJECTIONOFANTIQUITY, AntiquityStateMachine.transition(NEED_TO_BE_CHECKED, AntiquityAction.REJECT).getMail());
+        assertNull(AntiquityStateMachine.transition(ACCEPTED, AntiquityAction.REJECT));
+        assertNull(AntiquityStateMachine.transition(SOLD, AntiquityAction.REJECT));
+    }
+
+    /**
+     * Test the modification of an antiquity by its seller
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Edit sends back to the antiquarian, except a sold antiquity")
+    public void editTransitions() {
+        AntiquityTransition rejected = AntiquityStateMachine.transition(REJECTED, AntiquityAction.EDIT);
+        assertEquals(NEED_TO_BE_CHECKED, rejected.getTarget());
+        assertEquals(TypeOfMail.NEWANTIQUITY, rejected.getMail());
+
+        AntiquityTransition accepted = AntiquityStateMachine.transition(ACCEPTED, AntiquityAction.EDIT);
+        assertEquals(ACCEPTED_BUT_MODIFIED, accepted.getTarget());
+        assertEquals(TypeOfMail.NEWANTIQUITY, accepted.getMail());
+
+        assertEquals(NEED_TO_BE_CHECKED, AntiquityStateMachine.transition(NEED_TO_BE_CHECKED, AntiquityAction.EDIT).getTarget());
+        assertNull(AntiquityStateMachine.transition(NEED_TO_BE_CHECKED, AntiquityAction.EDIT).getMail());
+        assertNull(AntiquityStateMachine.transition(SOLD, AntiquityAction.EDIT));
+    }
+
+    /**
+     * Test the sale of an antiquity and the states from which it is allowed
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Sell only an accepted antiquity")
+    public void sellTransitions() {
+        assertEquals(SOLD, AntiquityStateMachine.transition(ACCEPTED, AntiquityAction.SELL).getTarget());
+        assertNull(AntiquityStateMachine.transition(SOLD, AntiquityAction.SELL));
+        assertEquals(SOLD, AntiquityStateMachine.transition(ACCEPTED_BUT_MODIFIED, AntiquityAction.SELL).getTarget());
+        assertNull(AntiquityStateMachine.transition(NEED_TO_BE_CHECKED, AntiquityAction.SELL));
+    }
+
+    /**
+     * Test the lookup with the values stored in the database
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Find the state from its value")
+    public void stateValues() {
+        for (AntiquityState state : AntiquityState.values()) {
+            assertEquals(state, AntiquityState.fromState(state.getState()));
+        }
+        assertNull(AntiquityState.fromState(42));
+        assertNull(AntiquityState.fromState(-2));
+        assertNull(AntiquityStateMachine.transition((Integer) null, AntiquityAction.ACCEPT));
+        assertSame(AntiquityStateMachine.transition(NEED_TO_BE_CHECKED, AntiquityAction.ACCEPT),
+                AntiquityStateMachine.transition(NEED_TO_BE_CHECKED.getState(), AntiquityAction.ACCEPT));
+    }
+}
@@ -0,0 +1,81 @@
+package be.anticair.anticairapi.service;
+
+import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.ListingWithPhotosDto;
+import be.anticair.anticairapi.keycloak.service.ListingCatalogCache;
+import be.anticair.anticairapi.keycloak.service.ListingChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the cache of the accepted listings and of its invalidation, without Spring
+ * @author Zarzycki Alexis
+ */
+public class ListingCatalogCacheTests {
+
+    private final ListingCatalogCache cache = new ListingCatalogCache(2, 2);
+
+    /**
+     * Test that a modification removes the listing and the catalog from the cache
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("A modification invalidates the listing and the catalog")
+    public void invalidation() {
+        cache.put(cache.generation(), listing(1));
+        cache.put(cache.generation(), listing(2));
+        cache.putCatalog(cache.generation(), List.of(listing(1), listing(2)));
+
+        cache.onListingChanged(new ListingChangedEvent(1));
+
+        assertNull(cache.get(1), "The modified listing should be removed");
+        assertNotNull(cache.get(2), "The other listings should be kept");
+        assertNull(cache.getCatalog(), "The catalog should be removed");
+    }
+
+    /**
+     * Test that a value read before a modification isn't stored after it
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("A value read before a modification is not stored")
+    public void staleValue() {
+        long generation = cache.generation();
+        cache.onListingChanged(new ListingChangedEvent(1));
+
+        cache.put(generation, listing(1));
+        cache.putCatalog(generation, List.of(listing(1)));
+
+        assertNull(cache.get(1));
+        assertNull(cache.getCatalog());
+    }
+
+    /**
+     * Test the limits of the cache: the least recently read listing is evicted, a catalog too big isn't stored
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("The cache keeps the most recently read listings and no big catalog")
+    public void limits() {
+        cache.put(cache.generation(), listing(1));
+        cache.put(cache.generation(), listing(2));
+        cache.get(1);
+        cache.put(cache.generation(), listing(3));
+        cache.putCatalog(cache.generation(), List.of(listing(1), listing(2), listing(3)));
+
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2), "The least recently read listing should be evicted");
+        assertNotNull(cache.get(3));
+        assertNull(cache.getCatalog(), "A catalog too big should not be stored");
+        assertEquals(1L, cache.getStatistics().get("evictions"));
+    }
+
+    private static ListingWithPhotosDto listing(int id) {
+        return new ListingWithPhotosDto(new Listing(id, 100.0, "A description", "Pandora's box",
+                "test-antiquarian@gmail.com", 1, true, "test-user@gmail.com"), List.of());
+    }
+}
@@ -0,0 +1,78 @@
+package be.anticair.anticairapi.service;
+
+import be.anticair.anticairapi.keycloak.service.ListingEventBroadcaster;
+import be.anticair.anticairapi.keycloak.service.ListingStreamEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Test of the stream of the accepted and sold listings, without the rest of the application
+ * @author Zarzycki Alexis
+ */
+public class ListingEventBroadcasterTests {
+
+    private final ListingEventBroadcaster broadcaster = new ListingEventBroadcaster(64, 60000, 30);
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StreamController(broadcaster)).build();
+
+    @AfterEach
+    public void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    /**
+     * Test that the events are sent to a client, in their order, with their kind and the listing
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Send the accepted and sold listings to the clients")
+    public void testBroadcast() throws Exception {
+        // Arrange
+        MvcResult client = mockMvc.perform(get("/stream")).andExpect(request().asyncStarted()).andReturn();
+
+        // Act
+        broadcaster.onListingStreamEvent(new ListingStreamEvent(ListingStreamEvent.Type.ACCEPTED, 1, "Pandora's box", 120.0));
+        broadcaster.onListingStreamEvent(new ListingStreamEvent(ListingStreamEvent.Type.SOLD, 1, "Pandora's box", 120.0));
+        String content = client.getResponse().getContentAsString();
+        for (int attempt = 0; attempt < 50 && !content.contains("event:sold"); attempt++) {
+            Thread.sleep(100);
+            content = client.getResponse().getContentAsString();
+        }
+
+        // Assert
+        int accepted = content.indexOf("event:accepted");
+        int sold = content.indexOf("event:sold");
+        assertTrue(accepted >= 0, "The accepted listing should be sent: " + content);
+        assertTrue(sold > accepted, "The events should be sent in their order: " + content);
+        assertTrue(content.contains("\"titleAntiquity\":\"Pandora's box\""), "The listing should be sent: " + content);
+    }
+
+    /**
+     * Controller giving the stream, like the endpoint of the listings
+     */
+    @RestController
+    static class StreamController {
+
+        private final ListingEventBroadcaster broadcaster;
+
+        StreamController(ListingEventBroadcaster broadcaster) {
+            this.broadcaster = broadcaster;
+        }
+
+        @GetMapping("/stream")
+        public SseEmitter stream() {
+            return broadcaster.subscribe();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package be.anticair.anticairapi.service;
+
+import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.PhotoAntiquity;
+import be.anticair.anticairapi.keycloak.service.ListingExportService;
+import be.anticair.anticairapi.keycloak.service.ListingRepository;
+import be.anticair.anticairapi.keycloak.service.PhotoAntiquityRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the export of the accepted catalog as NDJSON
+ * @author Zarzycki Alexis
+ */
+@SpringBootTest
+public class ListingExportServiceTests {
+
+    @Autowired
+    private ListingExportService listingExportService;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private PhotoAntiquityRepository photoAntiquityRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Test that each accepted listing is written on its own line with its photos, and only the accepted ones
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Export the accepted listings one by line")
+    void testExportAcceptedListings() throws IOException {
+        // Arrange
+        Listing accepted = listingRepository.save(new Listing(0, 120.5, "A description", "Pandora's box",
+                "test-antiquarian@gmail.com", 1, true, "test-user@gmail.com"));
+        Listing toCheck = listingRepository.save(new Listing(0, 100.0, "A description", "Zeus Statue",
+                "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+        PhotoAntiquity photo = new PhotoAntiquity();
+        photo.setPathPhoto("/uploads/" + UUID.randomUUID() + ".jpg");
+        photo.setIdAntiquity(accepted.getIdAntiquity());
+        photoAntiquityRepository.save(photo);
+
+        // Act
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        listingExportService.exportAcceptedListings(output);
+
+        // Assert: one valid JSON object by line
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        JsonNode exported = lines.stream()
+                .filter(line -> line.get("idAntiquity").asInt() == accepted.getIdAntiquity())
+                .findFirst().orElseThrow();
+        assertEquals("Pandora's box", exported.get("titleAntiquity").asText());
+        assertEquals(120.5, exported.get("priceAntiquity").asDouble());
+        assertEquals(photo.getPathPhoto(), exported.get("photos").get(0).asText());
+        assertTrue(lines.stream().noneMatch(line -> line.get("idAntiquity").asInt() == toCheck.getIdAntiquity()),
+                "The listing to check should not be exported");
+
+        // Clean up
+        photoAntiquityRepository.delete(photo);
+        listingRepository.delete(accepted);
+        listingRepository.delete(toCheck);
+    }
+}
@@ -1,12 +1,28 @@
 package be.anticair.anticairapi.service;
 
 import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.ListingChanges;
+import be.anticair.anticairapi.Class.ListingCursor;
+import be.anticair.anticairapi.Class.ListingFilter;
+import be.anticair.anticairapi.Class.ListingFilterResult;
+import be.anticair.anticairapi.Class.ListingPage;
+import be.anticair.anticairapi.Class.ListingStats;
+import be.anticair.anticairapi.Class.ListingSummary;
 import be.anticair.anticairapi.Class.ListingWithPhotosDto;
+import be.anticair.anticairapi.Class.PhotoAntiquity;
+import be.anticair.anticairapi.Class.ReviewDecision;
+import be.anticair.anticairapi.Class.ReviewResult;
+import be.anticair.anticairapi.enumeration.AntiquityAction;
 import be.anticair.anticairapi.enumeration.AntiquityState;
 import be.anticair.anticairapi.enumeration.TypeOfMail;
 import be.anticair.anticairapi.keycloak.service.EmailService;
+import be.anticair.anticairapi.keycloak.service.ListingFilterService;
 import be.anticair.anticairapi.keycloak.service.ListingRepository;
+import be.anticair.anticairapi.keycloak.service.ListingReviewService;
 import be.anticair.anticairapi.keycloak.service.ListingService;
+import be.anticair.anticairapi.keycloak.service.ListingStatsService;
+import be.anticair.anticairapi.keycloak.service.ListingWithPhotosAssembler;
+import be.anticair.anticairapi.keycloak.service.PhotoAntiquityRepository;
 import jakarta.mail.MessagingException;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.DisplayName;
@@ -15,11 +31,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static be.anticair.anticairapi.enumeration.AntiquityState.ACCEPTED_BUT_MODIFIED;
 import static be.anticair.anticairapi.enumeration.AntiquityState.NEED_TO_BE_CHECKED;
@@ -48,6 +70,31 @@ public class ListingServiceTests {
      */
     @Autowired
     private ListingRepository listingRepository;
+    /**
+     * The service of the bulk review
+     */
+    @Autowired
+    private ListingReviewService listingReviewService;
+    /**
+     * The service of the statistics
+     */
+    @Autowired
+    private ListingStatsService listingStatsService;
+    /**
+     * The repository of the photos
+     */
+    @Autowired
+    private PhotoAntiquityRepository photoAntiquityRepository;
+    /**
+     * The loader of the photos of the list endpoints
+     */
+    @Autowired
+    private ListingWithPhotosAssembler listingWithPhotosAssembler;
+    /**
+     * The service of the filter
+     */
+    @Autowired
+    private ListingFilterService listingFilterService;
 
     /**
      * The antiquity that will be used for the tests
@@ -418,6 +465,94 @@ public class ListingServiceTests {
         this.cleanListing(result);
     }
 
+    /**
+     * Test that an update is refused when the listing has been modified since the client read it.
+     *
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Refuse the update of a listing modified since it was read")
+    void testUpdateListing_StaleVersion() {
+        // Arrange
+        Listing listing = this.listingRepository.save(new Listing(0, 100.0, "Old description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        Listing updatedListing = new Listing(0, 120.0, "Updated description", "Updated title", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL);
+        long staleVersion = listing.getVersion() + 1;
+
+        // Act and assert
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> listingService.updateListing(Long.valueOf(listing.getIdAntiquity()), updatedListing, staleVersion));
+        Listing unchanged = this.listingRepository.findById(Long.valueOf(listing.getIdAntiquity())).orElseThrow();
+        assertEquals(100.0, unchanged.getPriceAntiquity(), "The price should not be updated");
+
+        // Clean up
+        this.cleanListing(unchanged);
+    }
+
+    /**
+     * Test that the bulk review applies each decision allowed, and explains the others.
+     *
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Review several listings at once")
+    void testReviewAntiquities() {
+        // Arrange
+        Listing toAccept = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        Listing toReject = this.listingRepository.save(new Listing(0, 50.0, "A description", "Athena Shield", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        List<ReviewDecision> decisions = List.of(
+                new ReviewDecision(toAccept.getIdAntiquity(), AntiquityAction.ACCEPT, null, null, null, null),
+                new ReviewDecision(toReject.getIdAntiquity(), AntiquityAction.REJECT, "Title", "Description", "Price", "Photo"),
+                new ReviewDecision(toAccept.getIdAntiquity(), AntiquityAction.REJECT, "Title", "Description", "Price", "Photo"),
+                new ReviewDecision(-1, AntiquityAction.ACCEPT, null, null, null, null));
+
+        // Act
+        List<ReviewResult> results = listingReviewService.review(decisions);
+
+        // Assert
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(AntiquityState.ACCEPTED.getState(), results.get(0).getState());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(AntiquityState.REJECTED.getState(), results.get(1).getState());
+        assertFalse(results.get(2).isSuccess(), "A second decision on the same listing should be refused");
+        assertFalse(results.get(3).isSuccess(), "A decision on a missing listing should be refused");
+        Listing accepted = this.listingRepository.findById(Long.valueOf(toAccept.getIdAntiquity())).orElseThrow();
+        assertEquals(120.0, accepted.getPriceAntiquity(), 0.001, "The commission should be applied");
+        Listing rejected = this.listingRepository.findById(Long.valueOf(toReject.getIdAntiquity())).orElseThrow();
+        assertEquals(AntiquityState.REJECTED.getState(), rejected.getState());
+
+        // Clean up
+        this.cleanListing(accepted);
+        this.cleanListing(rejected);
+    }
+
+    /**
+     * Test that the statistics follow the creation and the deletion of a listing.
+     *
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Keep the statistics up to date")
+    void testGetStats() {
+        // Arrange
+        ListingStats before = listingStatsService.getStats();
+        long countBefore = before.getStates().get(NEED_TO_BE_CHECKED.name()).getCount();
+        long backlogBefore = before.getAntiquarianBacklogs().getOrDefault(TEST_NEW_ANTIQUARIAN_EMAIL, 0L);
+
+        // Act
+        Listing listing = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", TEST_NEW_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        ListingStats after = listingStatsService.getStats();
+
+        // Assert
+        assertEquals(countBefore + 1, after.getStates().get(NEED_TO_BE_CHECKED.name()).getCount());
+        assertEquals(backlogBefore + 1, after.getAntiquarianBacklogs().get(TEST_NEW_ANTIQUARIAN_EMAIL));
+        assertEquals(before.getTotal().getCount() + 1, after.getTotal().getCount());
+
+        // Clean up
+        this.cleanListing(listing);
+        assertEquals(countBefore, listingStatsService.getStats().getStates().get(NEED_TO_BE_CHECKED.name()).getCount());
+    }
+
     /**
      * Test to ensure no changes are made when the listing's state is 3.
      * Verifies that the listing remains unchanged for immutable states.
@@ -576,5 +711,389 @@ public class ListingServiceTests {
         assertNotNull(result, "The result list should not be null");
         assertTrue(result.isEmpty(), "The result list should be empty when the antiquarian email does not exist");
     }
-}
 
+    /**
+     * Test that following the cursors reads each accepted listing once, in the order of the ids
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Read the whole catalog page by page")
+    void testGetListingsAcceptedPage() {
+        // Arrange
+        Listing first = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing second = this.listingRepository.save(new Listing(0, 100.0, "A description", "Zeus Statue", TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing toCheck = this.listingRepository.save(new Listing(0, 100.0, "A description", "Athena Vase", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+
+        // Act
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            ListingPage<ListingSummary> page = listingService.getListingsAcceptedPage(cursor, 2);
+            assertTrue(page.getItems().size() <= 2, "A page should not be larger than the size asked");
+            page.getItems().forEach(listing -> ids.add(listing.getIdAntiquity()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Assert
+        assertTrue(ids.contains(first.getIdAntiquity()) && ids.contains(second.getIdAntiquity()), "The accepted listings should be read");
+        assertFalse(ids.contains(toCheck.getIdAntiquity()), "The listing to check should not be read");
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i), "The listings should be read once, in the order of the ids");
+        }
+        assertThrows(IllegalArgumentException.class, () -> listingService.getListingsAcceptedPage(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> listingService.getListingsAcceptedPage("not a cursor!", null));
+
+        // Clean up
+        this.cleanListing(first);
+        this.cleanListing(second);
+        this.cleanListing(toCheck);
+    }
+
+    /**
+     * Test that the photos loaded together are given to their own listing, in their order
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Load the photos of several listings at once")
+    void testToDtos_PhotosOfEachListing() {
+        // Arrange
+        Listing withPhotos = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        Listing withoutPhotos = this.listingRepository.save(new Listing(0, 100.0, "A description", "Zeus Statue", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        List<PhotoAntiquity> photos = new ArrayList<>();
+        for (String path : List.of("/uploads/" + UUID.randomUUID() + ".jpg", "/uploads/" + UUID.randomUUID() + ".jpg")) {
+            PhotoAntiquity photo = new PhotoAntiquity();
+            photo.setPathPhoto(path);
+            photo.setIdAntiquity(withPhotos.getIdAntiquity());
+            photos.add(this.photoAntiquityRepository.save(photo));
+        }
+
+        // Act
+        List<ListingWithPhotosDto> result = listingWithPhotosAssembler.toDtos(listingService.getAntiquitySummariesByMailSeller(TEST_SELLER_EMAIL));
+
+        // Assert
+        ListingWithPhotosDto first = result.stream().filter(listing -> listing.getIdAntiquity().equals(withPhotos.getIdAntiquity())).findFirst().orElseThrow();
+        ListingWithPhotosDto second = result.stream().filter(listing -> listing.getIdAntiquity().equals(withoutPhotos.getIdAntiquity())).findFirst().orElseThrow();
+        assertEquals(List.of(photos.get(0).getPathPhoto(), photos.get(1).getPathPhoto()), first.getPhotos(), "The photos should be given in their order");
+        assertTrue(second.getPhotos().isEmpty(), "A listing without photos should have an empty list");
+
+        // Clean up
+        this.photoAntiquityRepository.deleteAll(photos);
+        this.cleanListing(withPhotos);
+        this.cleanListing(withoutPhotos);
+    }
+
+    /**
+     * Test that the search finds the accepted listings by their title and their description, the title first
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Search the accepted listings by their text")
+    void testSearchListingsAccepted() {
+        // Arrange: a word no other listing contains
+        String word = "pandora" + UUID.randomUUID().toString().replace("-", "");
+        Listing inDescription = this.listingRepository.save(new Listing(0, 100.0, "The box of " + word, "A box", TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing inTitle = this.listingRepository.save(new Listing(0, 100.0, "A description", "The box of " + word, TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing toCheck = this.listingRepository.save(new Listing(0, 100.0, "A description", "The box of " + word, TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+
+        // Act
+        ListingPage<ListingSummary> firstPage = listingService.searchListingsAccepted(word, null, 1);
+        ListingPage<ListingSummary> secondPage = listingService.searchListingsAccepted(word, firstPage.getNextCursor(), 1);
+
+        // Assert
+        assertEquals(inTitle.getIdAntiquity(), firstPage.getItems().get(0).getIdAntiquity(), "The title should count more than the description");
+        assertEquals(inDescription.getIdAntiquity(), secondPage.getItems().get(0).getIdAntiquity(), "The description should be searched");
+        assertNull(secondPage.getNextCursor(), "The listing to check should not be found");
+        assertThrows(IllegalArgumentException.class, () -> listingService.searchListingsAccepted("  ", null, null));
+
+        // Clean up
+        this.cleanListing(inDescription);
+        this.cleanListing(inTitle);
+        this.cleanListing(toCheck);
+    }
+
+    /**
+     * Test that the views read without the entities give the same listings and values as the entities
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @Transactional
+    @DisplayName("Read the same listings with the views as with the entities")
+    void testSummariesMatchTheEntities() {
+        // Arrange
+        Listing toCheck = this.listingRepository.save(new Listing(0, 100.5, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        Listing accepted = this.listingRepository.save(new Listing(0, 100.0, "A description", "Zeus Statue", TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing hidden = this.listingRepository.save(new Listing(0, 100.0, "A description", "Athena Vase", TEST_ANTIQUARIAN_EMAIL, 2, false, TEST_SELLER_EMAIL));
+        List<Integer> ids = List.of(toCheck.getIdAntiquity(), accepted.getIdAntiquity(), hidden.getIdAntiquity());
+
+        // Act
+        List<Integer> byState = listingService.getAntiquitySummariesByState(TEST_ANTIQUARIAN_EMAIL).stream()
+                .map(ListingSummary::getIdAntiquity).filter(ids::contains).sorted().toList();
+        List<Integer> entitiesByState = listingService.getAntiquitiesByState(TEST_ANTIQUARIAN_EMAIL).stream()
+                .map(Listing::getIdAntiquity).filter(ids::contains).sorted().toList();
+        List<ListingSummary> bySeller = listingService.getAntiquitySummariesByMailSeller(TEST_SELLER_EMAIL).stream()
+                .filter(listing -> ids.contains(listing.getIdAntiquity())).toList();
+        List<Integer> entitiesBySeller = listingService.getAntiquitiesByMailSeller(TEST_SELLER_EMAIL).stream()
+                .map(Listing::getIdAntiquity).filter(ids::contains).sorted().toList();
+
+        // Assert
+        assertEquals(entitiesByState, byState);
+        assertEquals(2, byState.size(), "Only the listings to check and the listings modified should be read");
+        assertFalse(byState.contains(accepted.getIdAntiquity()));
+        assertEquals(entitiesBySeller, bySeller.stream().map(ListingSummary::getIdAntiquity).sorted().toList());
+        assertFalse(entitiesBySeller.contains(hidden.getIdAntiquity()), "A hidden listing should not be given to its seller");
+        ListingSummary summary = bySeller.stream().filter(listing -> listing.getIdAntiquity().equals(toCheck.getIdAntiquity())).findFirst().orElseThrow();
+        assertEquals(100.5, summary.getPriceAntiquity());
+        assertEquals("Pandora's box", summary.getTitleAntiquity());
+        assertEquals(toCheck.getVersion(), summary.getVersion());
+
+        // Clean up
+        this.cleanListing(toCheck);
+        this.cleanListing(accepted);
+        this.cleanListing(hidden);
+    }
+
+    /**
+     * Test that the filter gives the listings matching all the criteria, and counts the facets without the
+     * criterion of the facet itself
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @Transactional
+    @DisplayName("Filter the public listings with their facets")
+    void testFilterListings() {
+        // Arrange: a word no other listing contains
+        String word = "pandora" + UUID.randomUUID().toString().replace("-", "");
+        Listing cheap = this.listingRepository.save(new Listing(0, 40.0, "A description", "The box of " + word, TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing expensive = this.listingRepository.save(new Listing(0, 120.0, "The box of " + word, "A box", TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing sold = this.listingRepository.save(new Listing(0, 300.0, "A description", "The box of " + word, TEST_ANTIQUARIAN_EMAIL, 3, true, TEST_SELLER_EMAIL));
+        Listing toCheck = this.listingRepository.save(new Listing(0, 60.0, "A description", "The box of " + word, TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        ListingFilter filter = new ListingFilter();
+        filter.setText(word.toUpperCase());
+        filter.setMinPrice(new BigDecimal("100"));
+        filter.setSort("price_desc");
+
+        // Act
+        ListingFilterResult result = listingFilterService.filter(filter);
+
+        // Assert
+        assertEquals(List.of(expensive.getIdAntiquity()), result.getItems().stream().map(ListingWithPhotosDto::getIdAntiquity).toList());
+        assertEquals(1, result.getTotalElements());
+        assertEquals(1L, result.getPriceBuckets().get("0-50"), "The facet of the price should ignore the minimum price");
+        assertEquals(1L, result.getPriceBuckets().get("100-250"));
+        assertEquals(1L, result.getStateCounts().get(AntiquityState.ACCEPTED.getState()));
+        assertEquals(1L, result.getStateCounts().get(AntiquityState.SOLD.getState()), "The facet of the state should ignore the state");
+        filter.setState(NEED_TO_BE_CHECKED.getState());
+        assertThrows(IllegalArgumentException.class, () -> listingFilterService.filter(filter), "A listing to check should not be public");
+        filter.setState(null);
+        filter.setMaxPrice(new BigDecimal("50"));
+        assertThrows(IllegalArgumentException.class, () -> listingFilterService.filter(filter));
+
+        // Clean up
+        this.cleanListing(cheap);
+        this.cleanListing(expensive);
+        this.cleanListing(sold);
+        this.cleanListing(toCheck);
+    }
+
+    /**
+     * Test that the listings and the photos saved together get their ids from the sequences, before the inserts
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Give the ids of the listings and the photos saved together")
+    void testSaveAll_IdsFromTheSequences() {
+        // Arrange
+        List<Listing> listings = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            listings.add(new Listing(null, 100.0, "A description", "Pandora's box " + i, TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        }
+
+        // Act
+        List<Listing> saved = this.listingRepository.saveAll(listings);
+        List<PhotoAntiquity> photos = new ArrayList<>();
+        for (Listing listing : saved) {
+            PhotoAntiquity photo = new PhotoAntiquity();
+            photo.setPathPhoto("/uploads/" + UUID.randomUUID() + ".jpg");
+            photo.setIdAntiquity(listing.getIdAntiquity());
+            photos.add(photo);
+        }
+        List<PhotoAntiquity> savedPhotos = this.photoAntiquityRepository.saveAll(photos);
+
+        // Assert
+        assertEquals(3, saved.stream().map(Listing::getIdAntiquity).filter(Objects::nonNull).distinct().count(),
+                "Each listing should get its own id");
+        assertEquals(3, savedPhotos.stream().map(PhotoAntiquity::getIdPhoto).filter(Objects::nonNull).distinct().count(),
+                "Each photo should get its own id");
+        for (Listing listing : saved) {
+            assertTrue(this.listingRepository.findById(Long.valueOf(listing.getIdAntiquity())).isPresent());
+        }
+
+        // Clean up
+        this.photoAntiquityRepository.deleteAll(savedPhotos);
+        this.listingRepository.deleteAll(saved);
+    }
+
+    /**
+     * Test that a listing accepted by two antiquarians at the same moment is accepted once, with the commission once
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Accept a listing once when it is accepted twice at the same moment")
+    void testAcceptAntiquity_Concurrent() throws Exception {
+        // Arrange
+        Listing toCheck = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, NEED_TO_BE_CHECKED.getState(), true, TEST_SELLER_EMAIL));
+        Callable<Listing> accept = () -> {
+            Map<String, String> otherInformation = new HashMap<>();
+            otherInformation.put("id", toCheck.getIdAntiquity().toString());
+            return listingService.acceptAntiquity(otherInformation);
+        };
+
+        // Act
+        List<Listing> results = new ArrayList<>();
+        try (ExecutorService antiquarians = Executors.newFixedThreadPool(2)) {
+            for (Future<Listing> result : antiquarians.invokeAll(List.of(accept, accept))) {
+                results.add(result.get());
+            }
+        }
+
+        // Assert
+        assertEquals(1, results.stream().filter(Objects::nonNull).count(), "The listing should be accepted once");
+        Listing accepted = this.listingRepository.findById(Long.valueOf(toCheck.getIdAntiquity())).orElseThrow();
+        assertEquals(AntiquityState.ACCEPTED.getState(), accepted.getState());
+        assertEquals(120.0, accepted.getPriceAntiquity(), "The commission should be applied once");
+
+        // Clean up
+        this.cleanListing(accepted);
+    }
+
+    /**
+     * Test that the statistics follow a listing moving between two states, with the price aggregates of the states
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Move the statistics of a listing with its state")
+    void testGetStats_StateChange() {
+        // Arrange: a price higher than the others
+        ListingStats before = listingStatsService.getStats();
+        Listing listing = this.listingRepository.save(new Listing(0, 9_000_000_000.0, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        Map<String,String> otherInformation = new HashMap<>();
+        otherInformation.put("id", listing.getIdAntiquity().toString());
+        otherInformation.put("note_title", "test");
+        otherInformation.put("note_description", "test");
+        otherInformation.put("note_price", "test");
+        otherInformation.put("note_photo", "test");
+
+        // Act
+        this.listingService.rejectAntiquity(otherInformation);
+        ListingStats after = listingStatsService.getStats();
+
+        // Assert
+        assertEquals(before.getStates().get(NEED_TO_BE_CHECKED.name()).getCount(), after.getStates().get(NEED_TO_BE_CHECKED.name()).getCount(),
+                "The listing should leave the state to check");
+        assertEquals(before.getStates().get(AntiquityState.REJECTED.name()).getCount() + 1, after.getStates().get(AntiquityState.REJECTED.name()).getCount());
+        assertEquals(0, new BigDecimal("9000000000").compareTo(after.getStates().get(AntiquityState.REJECTED.name()).getPriceMax()));
+        assertEquals(0, new BigDecimal("9000000000").compareTo(after.getTotal().getPriceMax()));
+
+        // Clean up
+        this.cleanListing(this.listingRepository.findById(Long.valueOf(listing.getIdAntiquity())).orElseThrow());
+        assertEquals(before.getStates().get(AntiquityState.REJECTED.name()).getPriceMax(),
+                listingStatsService.getStats().getStates().get(AntiquityState.REJECTED.name()).getPriceMax(), "The maximum should be found again");
+    }
+
+    /**
+     * Test that the cursors of the catalog and of the search can't be exchanged
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Refuse a cursor given by another endpoint")
+    void testCursorOfAnotherEndpoint() {
+        assertThrows(IllegalArgumentException.class,
+                () -> listingService.getListingsAcceptedPage(ListingCursor.encodeOffset(20), null));
+        assertThrows(IllegalArgumentException.class,
+                () -> listingService.searchListingsAccepted("box", ListingCursor.encode(20), null));
+    }
+
+    /**
+     * Test that only the accepted listings can be paid
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Check that a listing can be sold before the payment")
+    void testCanBeSold() throws MessagingException, IOException {
+        // Arrange
+        Listing accepted = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing rejected = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, -1, true, TEST_SELLER_EMAIL));
+
+        // Act and assert
+        assertTrue(listingService.canBeSold(Long.valueOf(accepted.getIdAntiquity())), "An accepted listing can be sold");
+        assertFalse(listingService.canBeSold(Long.valueOf(rejected.getIdAntiquity())), "A rejected listing can't be sold");
+        assertFalse(listingService.canBeSold(-1L), "A missing listing can't be sold");
+        listingService.markAsSold(Long.valueOf(accepted.getIdAntiquity()));
+        assertFalse(listingService.canBeSold(Long.valueOf(accepted.getIdAntiquity())), "A listing can't be sold twice");
+
+        // Clean up
+        this.cleanListing(this.listingRepository.findById(Long.valueOf(accepted.getIdAntiquity())).orElseThrow());
+        this.cleanListing(rejected);
+    }
+
+    /**
+     * Test that the state sent with an update is ignored, the state is only changed by the review and the sale
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @Transactional
+    @DisplayName("Ignore the state sent with the update of a listing")
+    void testUpdateListing_StateOfTheClientIgnored() throws MessagingException, IOException {
+        // Arrange
+        Listing toCheck = this.listingRepository.save(new Listing(0, 100.0, "Old description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+        Listing modified = this.listingRepository.save(new Listing(0, 100.0, "Old description", "Zeus Statue", TEST_ANTIQUARIAN_EMAIL, 2, true, TEST_SELLER_EMAIL));
+
+        // Act
+        Listing resultToCheck = listingService.updateListing(Long.valueOf(toCheck.getIdAntiquity()),
+                new Listing(0, 120.0, "Updated description", "Updated title", TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing resultModified = listingService.updateListing(Long.valueOf(modified.getIdAntiquity()),
+                new Listing(0, 120.0, "Updated description", "Updated title", TEST_ANTIQUARIAN_EMAIL, 3, true, TEST_SELLER_EMAIL));
+
+        // Assert
+        assertEquals(120.0, resultToCheck.getPriceAntiquity(), "The price should be updated");
+        assertEquals(NEED_TO_BE_CHECKED.getState(), resultToCheck.getState(), "The listing should still have to be checked");
+        assertEquals(ACCEPTED_BUT_MODIFIED.getState(), resultModified.getState(), "The listing should still be accepted but modified");
+
+        // Clean up
+        this.cleanListing(resultToCheck);
+        this.cleanListing(resultModified);
+    }
+
+    /**
+     * Test that the change feed gives the listings accepted as upserts and the others as tombstones, after the
+     * position of the client
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Read the changes of the catalog since a position")
+    void testGetListingChangesSince() {
+        // Arrange: the position of the last change
+        ListingChanges changes = listingService.getListingChangesSince(0L, 100);
+        while (changes.isHasMore()) {
+            changes = listingService.getListingChangesSince(changes.getNextSince(), 100);
+        }
+        long since = changes.getNextSince();
+        Listing accepted = this.listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box", TEST_ANTIQUARIAN_EMAIL, 1, true, TEST_SELLER_EMAIL));
+        Listing toCheck = this.listingRepository.save(new Listing(0, 100.0, "A description", "Zeus Statue", TEST_ANTIQUARIAN_EMAIL, 0, true, TEST_SELLER_EMAIL));
+
+        // Act
+        ListingChanges after = listingService.getListingChangesSince(since, 100);
+
+        // Assert
+        assertTrue(after.getUpserts().stream().anyMatch(listing -> listing.getIdAntiquity().equals(accepted.getIdAntiquity())),
+                "The accepted listing should be an upsert");
+        assertTrue(after.getTombstones().contains(toCheck.getIdAntiquity()), "The listing to check should be a tombstone");
+        assertTrue(after.getNextSince() > since, "The position should move forward");
+        assertFalse(listingService.getListingChangesSince(after.getNextSince(), 100).getTombstones().contains(toCheck.getIdAntiquity()),
+                "A change should be read once");
+
+        // Clean up
+        this.cleanListing(accepted);
+        this.cleanListing(toCheck);
+    }
+}
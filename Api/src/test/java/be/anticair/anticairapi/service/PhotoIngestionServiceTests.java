@@ -0,0 +1,193 @@
+package be.anticair.anticairapi.service;
+
+import be.anticair.anticairapi.Class.Listing;
+import be.anticair.anticairapi.Class.PhotoAntiquity;
+import be.anticair.anticairapi.Class.PhotoIngestionStatus;
+import be.anticair.anticairapi.keycloak.service.ListingRepository;
+import be.anticair.anticairapi.keycloak.service.PhotoAntiquityRepository;
+import be.anticair.anticairapi.keycloak.service.PhotoAntiquityService;
+import be.anticair.anticairapi.keycloak.service.PhotoIngestionService;
+import be.anticair.anticairapi.keycloak.service.PhotoLayoutMigrator;
+import be.anticair.anticairapi.keycloak.service.PhotoStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the ingestion of the photos uploaded with a listing, of their smaller versions and of their storage
+ * @author Zarzycki Alexis
+ */
+@SpringBootTest
+public class PhotoIngestionServiceTests {
+
+    @Autowired
+    private PhotoIngestionService photoIngestionService;
+
+    @Autowired
+    private PhotoAntiquityService photoAntiquityService;
+
+    @Autowired
+    private PhotoAntiquityRepository photoAntiquityRepository;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private PhotoLayoutMigrator photoLayoutMigrator;
+
+    /**
+     * Test that the photos are written, then saved in the database after the return
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Ingest the photos of a listing")
+    void testIngest() throws IOException, InterruptedException {
+        // Arrange
+        Listing listing = listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box",
+                "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+        List<MultipartFile> photos = List.of(
+                new MockMultipartFile("photos", "first.jpg", "image/jpeg", new byte[] {1, 2, 3}),
+                new MockMultipartFile("photos", "second.jpg", "image/jpeg", new byte[] {4, 5, 6}));
+
+        // Act
+        PhotoIngestionStatus pending = photoIngestionService.ingest(listing, photos);
+        PhotoIngestionStatus status = pending;
+        for (int attempt = 0; attempt < 50 && status.getState() == PhotoIngestionStatus.State.PENDING; attempt++) {
+            Thread.sleep(100);
+            status = photoIngestionService.getStatus(listing.getIdAntiquity()).orElseThrow();
+        }
+
+        // Assert
+        assertEquals(2, pending.getTotal());
+        assertEquals(PhotoIngestionStatus.State.DONE, status.getState());
+        List<PhotoAntiquity> saved = photoAntiquityRepository.findByIdAntiquity(listing.getIdAntiquity());
+        assertEquals(2, saved.size());
+
+        // Clean up
+        photoAntiquityRepository.deleteAll(saved);
+        listingRepository.delete(listing);
+    }
+
+    /**
+     * Test that the smaller versions of a photo are made for the widths smaller than the photo
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Make the smaller versions of a photo")
+    void testVariants() throws IOException {
+        // Arrange
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "png", image);
+        Listing listing = listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box",
+                "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+
+        // Act
+        List<PhotoAntiquity> saved = photoAntiquityService.createPhotoAntiquities(listing,
+                List.of(new MockMultipartFile("photos", "photo.png", "image/png", image.toByteArray())));
+
+        // Assert
+        PhotoAntiquity photo = saved.get(0);
+        assertEquals("600,200", photo.getVariantWidths());
+        assertEquals(Set.of(200, 600), photo.getVariants().keySet());
+        BufferedImage small = ImageIO.read(new File(System.getProperty("user.dir") + photo.getVariants().get(200)));
+        assertEquals(200, small.getWidth());
+        assertEquals(100, small.getHeight());
+
+        // Clean up
+        photoAntiquityRepository.deleteAll(saved);
+        listingRepository.delete(listing);
+    }
+
+    /**
+     * Test that the same image uploaded twice is kept once, and can be used by several photos
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Keep the same image once")
+    void testDeduplicate() throws IOException, NoSuchAlgorithmException {
+        // Arrange
+        byte[] content = "the same image".getBytes(StandardCharsets.UTF_8);
+        Listing first = listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box",
+                "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+        Listing second = listingRepository.save(new Listing(0, 150.0, "Another description", "Pandora's box",
+                "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+
+        // Act
+        List<PhotoAntiquity> firstPhotos = photoAntiquityService.createPhotoAntiquities(first,
+                List.of(new MockMultipartFile("photos", "photo.JPG", "image/jpeg", content)));
+        List<PhotoAntiquity> secondPhotos = photoAntiquityService.createPhotoAntiquities(second,
+                List.of(new MockMultipartFile("photos", "copy.jpg", "image/jpeg", content)));
+        String other = photoAntiquityService.saveFile(new MockMultipartFile("photos", "other.jpg", "image/jpeg", new byte[] {7, 8, 9}));
+
+        // Assert
+        String path = firstPhotos.get(0).getPathPhoto();
+        assertEquals(path, secondPhotos.get(0).getPathPhoto());
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        assertEquals("/uploads/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".jpg", path);
+        assertTrue(PhotoStorage.isSharded(path));
+        assertArrayEquals(content, Files.readAllBytes(Path.of(System.getProperty("user.dir") + path)));
+        assertNotEquals(path, other);
+
+        // Clean up
+        photoAntiquityRepository.deleteAll(firstPhotos);
+        photoAntiquityRepository.deleteAll(secondPhotos);
+        listingRepository.delete(first);
+        listingRepository.delete(second);
+    }
+
+    /**
+     * Test that a photo saved directly in the uploads is moved to the directories by digest
+     * @author Zarzycki Alexis
+     */
+    @Test
+    @DisplayName("Migrate a photo to the directories by digest")
+    void testMigrateLayout() throws IOException {
+        // Arrange
+        byte[] content = "an image saved before".getBytes(StandardCharsets.UTF_8);
+        String oldPath = "/uploads/" + UUID.randomUUID() + ".jpg";
+        Files.createDirectories(PhotoStorage.DIRECTORY);
+        Files.write(Path.of(System.getProperty("user.dir") + oldPath), content);
+        Listing listing = listingRepository.save(new Listing(0, 100.0, "A description", "Pandora's box",
+                "test-antiquarian@gmail.com", 0, true, "test-user@gmail.com"));
+        PhotoAntiquity photo = new PhotoAntiquity();
+        photo.setPathPhoto(oldPath);
+        photo.setIdAntiquity(listing.getIdAntiquity());
+        photoAntiquityRepository.save(photo);
+
+        // Act, only on the path of the test: the database of the tests is shared
+        int moved = photoLayoutMigrator.migratePaths(List.of(oldPath));
+
+        // Assert
+        List<PhotoAntiquity> migrated = photoAntiquityRepository.findByIdAntiquityInOrderByIdAntiquityAscIdPhotoAsc(List.of(listing.getIdAntiquity()));
+        String newPath = migrated.get(0).getPathPhoto();
+        assertEquals(1, moved);
+        assertTrue(PhotoStorage.isSharded(newPath));
+        assertArrayEquals(content, Files.readAllBytes(Path.of(System.getProperty("user.dir") + newPath)));
+        // Kept for the pages already displayed, until the garbage collection
+        assertTrue(Files.exists(Path.of(System.getProperty("user.dir") + oldPath)));
+
+        // Clean up
+        photoAntiquityRepository.deleteAll(migrated);
+        listingRepository.delete(listing);
+    }
+}